@@ -0,0 +1,89 @@
+package com.example.rvec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Many small matrices: one MatrixBatch call against a loop of RVec calls,
+// scored per matrix.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchBench {
+    private static final int COUNT = 10_000;
+
+    @Param({"2", "3", "4"})
+    public int size;
+
+    @Param({"INTEGER", "FRACTIONAL"})
+    public Inputs.Kind kind;
+
+    private RVec[] mats;
+    private MatrixBatch batch;
+    private MatrixBatch rhs;
+
+    @Setup
+    public void setup() {
+        mats = new RVec[COUNT];
+        var ys = new RVec[COUNT];
+        for (int b = 0; b < COUNT; b++) {
+            mats[b] = Inputs.matrix(size, size, kind, Inputs.Density.DENSE, b);
+            ys[b] = Inputs.matrix(size, 1, kind, Inputs.Density.DENSE, COUNT + b);
+        }
+        batch = MatrixBatch.of(mats);
+        rhs = MatrixBatch.of(ys);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public MatrixBatch batchDet() {
+        return batch.det();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public MatrixBatch batchInv() {
+        return batch.inv();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public MatrixBatch batchSolve() {
+        return batch.solve(rhs);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void loopDet(Blackhole bh) {
+        for (RVec a : mats) {
+            bh.consume(a.det());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public void loopInv(Blackhole bh) {
+        for (RVec a : mats) {
+            try {
+                bh.consume(a.inv());
+            } catch (ArithmeticException e) {
+                bh.consume(e);
+            }
+        }
+    }
+}
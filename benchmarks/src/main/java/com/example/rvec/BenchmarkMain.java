@@ -0,0 +1,32 @@
+package com.example.rvec;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Entry point of benchmarks.jar. Accepts the usual JMH command line and
+// always attaches the GC profiler, so every result comes with allocation
+// rate and bytes per operation.
+//
+//   mvn -B package
+//   java -jar benchmarks/target/benchmarks.jar                  # everything
+//   java -jar benchmarks/target/benchmarks.jar MatrixBench.dot -p size=100,500
+public class BenchmarkMain {
+    private static final List<String> INFO_FLAGS = List.of("-h", "-l", "-lp", "-lprof", "-lrf");
+
+    public static void main(String[] args) throws Exception {
+        if (Arrays.stream(args).anyMatch(INFO_FLAGS::contains)) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        var options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
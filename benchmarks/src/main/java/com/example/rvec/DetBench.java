@@ -0,0 +1,60 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DetBench {
+    @Param({"3", "10", "50", "100", "200", "500"})
+    public int size;
+
+    @Param({"INTEGER", "FRACTIONAL"})
+    public Inputs.Kind kind;
+
+    @Param({"DENSE", "SPARSE"})
+    public Inputs.Density density;
+
+    private RVec a;
+
+    @Setup
+    public void setup() {
+        a = Inputs.matrix(size, size, kind, density, 1);
+    }
+
+    @Benchmark
+    public Fraction det() {
+        return a.det();
+    }
+
+    @Benchmark
+    public Fraction detBareiss() {
+        return a.det(RVec.DetStrategy.BAREISS);
+    }
+
+    @Benchmark
+    public Fraction detModular() {
+        return a.det(RVec.DetStrategy.MODULAR);
+    }
+
+    @Benchmark
+    public int rank() {
+        return a.rank();
+    }
+}
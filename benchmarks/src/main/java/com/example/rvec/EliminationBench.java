@@ -0,0 +1,57 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// rref and inv grow coefficients quickly on dense inputs; the default
+// sizes stop at 100, pass -p size=200,500 for the larger ones.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EliminationBench {
+    @Param({"3", "10", "50", "100"})
+    public int size;
+
+    @Param({"INTEGER", "FRACTIONAL"})
+    public Inputs.Kind kind;
+
+    @Param({"DENSE", "SPARSE"})
+    public Inputs.Density density;
+
+    private RVec a;
+
+    @Setup
+    public void setup() {
+        a = Inputs.matrix(size, size, kind, density, 1);
+    }
+
+    @Benchmark
+    public RVec rref() {
+        return a.rref();
+    }
+
+    @Benchmark
+    public RVec inv() {
+        return a.inv();
+    }
+
+    @Benchmark
+    public Fraction detElimination() {
+        return a.det(RVec.DetStrategy.ELIMINATION);
+    }
+}
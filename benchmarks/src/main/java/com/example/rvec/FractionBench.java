@@ -0,0 +1,83 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FractionBench {
+    private static final int N = 1024;
+
+    @Param({"INTEGER", "FRACTIONAL"})
+    public Inputs.Kind kind;
+
+    private Fraction[] a;
+    private Fraction[] b;
+
+    @Setup
+    public void setup() {
+        a = Inputs.fractions(N, kind, 1);
+        b = Inputs.fractions(N, kind, 2);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void add(Blackhole bh) {
+        for (int i = 0; i < N; i++) {
+            bh.consume(a[i].add(b[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void sub(Blackhole bh) {
+        for (int i = 0; i < N; i++) {
+            bh.consume(a[i].sub(b[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void mul(Blackhole bh) {
+        for (int i = 0; i < N; i++) {
+            bh.consume(a[i].mul(b[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public void div(Blackhole bh) {
+        for (int i = 0; i < N; i++) {
+            bh.consume(a[i].div(b[i]));
+        }
+    }
+
+    // a running sum, where denominators and BigInteger promotion build up
+    @Benchmark
+    @OperationsPerInvocation(N)
+    public Fraction accumulate() {
+        var s = Fraction.ZERO;
+        for (int i = 0; i < N; i++) {
+            s = s.add(a[i].mul(b[i]));
+        }
+        return s;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Binary and text round trips and load times.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IOBench {
+    @Param({"100", "500", "1000"})
+    public int size;
+
+    @Param({"INTEGER", "FRACTIONAL"})
+    public Inputs.Kind kind;
+
+    @Param({"DENSE", "SPARSE"})
+    public Inputs.Density density;
+
+    private RVec a;
+    private Path file;
+    private Path scratch;
+    private String text;
+
+    @Setup
+    public void setup() throws IOException {
+        a = Inputs.matrix(size, size, kind, density, 1);
+        file = Files.createTempFile("iobench", ".rvec");
+        scratch = Files.createTempFile("iobench", ".rvec");
+        MatrixFile.write(a, file);
+        var sb = new StringBuilder();
+        MatrixText.writeDelimited(a, sb, ',');
+        text = sb.toString();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(scratch);
+    }
+
+    @Benchmark
+    public Path writeBinary() throws IOException {
+        MatrixFile.write(a, scratch);
+        return scratch;
+    }
+
+    @Benchmark
+    public String writeText() {
+        return a.toString();
+    }
+
+    @Benchmark
+    public RVec loadText() throws IOException {
+        return MatrixText.read(new StringReader(text));
+    }
+
+    // mapping plus one random access, no cells parsed
+    @Benchmark
+    public Fraction openMapped() throws IOException {
+        return MatrixFile.open(file).get(size / 2, size / 2);
+    }
+
+    @Benchmark
+    public RVec loadBinary() throws IOException {
+        return MatrixFile.open(file).toVec();
+    }
+}
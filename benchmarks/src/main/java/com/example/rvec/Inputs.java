@@ -0,0 +1,64 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+
+import java.util.Random;
+
+// Deterministic matrices for the benchmarks. Lives in com.example.rvec to
+// build RVecs from Fraction[][] directly.
+final class Inputs {
+    enum Kind {
+        // entries in [-99, 99]
+        INTEGER,
+        // entries in [-99, 99] over denominators in [1, 9]
+        FRACTIONAL
+    }
+
+    enum Density {
+        DENSE,
+        // about 5% off-diagonal non-zeros, dominant diagonal so that
+        // elimination inputs stay invertible
+        SPARSE
+    }
+
+    private Inputs() {
+    }
+
+    static RVec matrix(int m, int n, Kind kind, Density density, long seed) {
+        var r = new Random(seed);
+        var ma = new Fraction[m][n];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                long num;
+                if (density == Density.SPARSE) {
+                    if (i == j) {
+                        num = 100L * n + r.nextInt(100);
+                    } else {
+                        num = r.nextInt(20) == 0 ? r.nextInt(199) - 99 : 0;
+                    }
+                } else {
+                    num = r.nextInt(199) - 99;
+                }
+                ma[i][j] = fraction(num, kind, r);
+            }
+        }
+        return new RVec(m, n, ma);
+    }
+
+    static Fraction[] fractions(int count, Kind kind, long seed) {
+        var r = new Random(seed);
+        var fs = new Fraction[count];
+        for (int i = 0; i < count; i++) {
+            var num = r.nextInt(199) - 99;
+            fs[i] = fraction(num == 0 ? 1 : num, kind, r);
+        }
+        return fs;
+    }
+
+    private static Fraction fraction(long num, Kind kind, Random r) {
+        if (kind == Kind.INTEGER || num == 0) {
+            return Fraction.fromLong(num);
+        }
+        return Fraction.of(num, 1 + r.nextInt(9));
+    }
+}
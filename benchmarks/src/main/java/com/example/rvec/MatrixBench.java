@@ -0,0 +1,73 @@
+package com.example.rvec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatrixBench {
+    @Param({"3", "10", "50", "100", "200", "500"})
+    public int size;
+
+    @Param({"INTEGER", "FRACTIONAL"})
+    public Inputs.Kind kind;
+
+    @Param({"DENSE", "SPARSE"})
+    public Inputs.Density density;
+
+    private static final RVec.Fraction K = RVec.Fraction.of(3, 7);
+
+    private RVec a;
+    private RVec b;
+
+    @Setup
+    public void setup() {
+        a = Inputs.matrix(size, size, kind, density, 1);
+        b = Inputs.matrix(size, size, kind, density, 2);
+    }
+
+    @Benchmark
+    public RVec dot() {
+        return a.dot(b);
+    }
+
+    @Benchmark
+    public RVec dotStrassen() {
+        return a.dotStrassen(b);
+    }
+
+    @Benchmark
+    public RVec transpose() {
+        return a.transpose();
+    }
+
+    @Benchmark
+    public RVec add() {
+        return a.add(b);
+    }
+
+    @Benchmark
+    public RVec chainEager() {
+        return a.add(b).mul(K).neg().transpose().add(a).neg();
+    }
+
+    @Benchmark
+    public RVec chainLazy() {
+        return a.lazy().add(b).mul(K).neg().transpose().add(a).neg().toVec();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// A few entries changed per step: UpdatableInverse updates against
+// refactorizing the same matrix.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UpdateBench {
+    private static final int ENTRIES = 3;
+
+    @Param({"50", "100", "200"})
+    public int size;
+
+    @Param({"INTEGER", "FRACTIONAL"})
+    public Inputs.Kind kind;
+
+    private UpdatableInverse handle;
+    private RVec values;
+    private int step;
+
+    @Setup
+    public void setup() {
+        handle = new UpdatableInverse(Inputs.matrix(size, size, kind, Inputs.Density.DENSE, 1));
+        // replacement values drawn like the matrix, so the scale settles
+        values = Inputs.matrix(size, size, kind, Inputs.Density.DENSE, 2);
+    }
+
+    @Benchmark
+    public Fraction updateEntries() {
+        var rows = new int[ENTRIES];
+        var cols = new int[ENTRIES];
+        var vals = new Fraction[ENTRIES];
+        for (int t = 0; t < ENTRIES; t++) {
+            rows[t] = (step + t * 7) % size;
+            cols[t] = (step * 13 + t * 5) % size;
+            vals[t] = values.get(rows[t], cols[t]);
+        }
+        step++;
+        handle.set(rows, cols, vals);
+        return handle.det();
+    }
+
+    @Benchmark
+    public Fraction refactor() {
+        handle.refactor();
+        return handle.det();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+
+/**
+ * Double-precision solve used to propose candidate rational solutions.
+ * Nothing computed here is trusted: the caller verifies every candidate
+ * exactly and falls back to the rational engine when it does not hold.
+ */
+final class Approx {
+    // largest denominator a candidate entry may have
+    private static final long MAX_DEN = 1L << 31;
+    // relative distance between an entry and its rationalization
+    private static final double TOLERANCE = 1e-9;
+
+    private Approx() {
+    }
+
+    // a is n x n and b is n x k, both row-major, and both are overwritten.
+    // Returns the k columns of x in b, or false if a looks singular.
+    static boolean solve(double[] a, double[] b, int n, int k) {
+        double norm = 0;
+        for (double v : a) {
+            norm = Math.max(norm, Math.abs(v));
+        }
+        var tiny = norm * n * Math.ulp(1.0);
+
+        for (int j = 0; j < n; j++) {
+            int p = j;
+            for (int i = j + 1; i < n; i++) {
+                if (Math.abs(a[i * n + j]) > Math.abs(a[p * n + j])) {
+                    p = i;
+                }
+            }
+            if (!(Math.abs(a[p * n + j]) > tiny)) {
+                return false;
+            }
+            if (p != j) {
+                swap(a, n, p, j);
+                swap(b, k, p, j);
+            }
+            var pivot = a[j * n + j];
+            for (int i = j + 1; i < n; i++) {
+                var f = a[i * n + j] / pivot;
+                if (f == 0) {
+                    continue;
+                }
+                for (int c = j + 1; c < n; c++) {
+                    a[i * n + c] -= f * a[j * n + c];
+                }
+                for (int c = 0; c < k; c++) {
+                    b[i * k + c] -= f * b[j * k + c];
+                }
+            }
+        }
+
+        for (int i = n - 1; i >= 0; i--) {
+            for (int c = 0; c < k; c++) {
+                var s = b[i * k + c];
+                for (int j = i + 1; j < n; j++) {
+                    s -= a[i * n + j] * b[j * k + c];
+                }
+                s /= a[i * n + i];
+                if (!Double.isFinite(s)) {
+                    return false;
+                }
+                b[i * k + c] = s;
+            }
+        }
+        return true;
+    }
+
+    // first continued fraction convergent of x within the tolerance,
+    // or null if none exists below MAX_DEN
+    static Fraction rationalize(double x) {
+        var tol = TOLERANCE * Math.max(1, Math.abs(x));
+        var fl = Math.floor(x);
+        if (Math.abs(fl) >= 0x1p62) {
+            return null;
+        }
+        long h0 = 1, h1 = (long) fl;
+        long k0 = 0, k1 = 1;
+        var r = x - fl;
+        while (Math.abs(x - (double) h1 / k1) > tol) {
+            if (r == 0) {
+                return null;
+            }
+            r = 1 / r;
+            var a = Math.floor(r);
+            r -= a;
+            if (a >= MAX_DEN) {
+                return null;
+            }
+            var ai = (long) a;
+            var k2 = ai * k1 + k0;
+            if (k2 > MAX_DEN || Fraction.mulOverflows(ai, h1)
+                    || Fraction.addOverflows(ai * h1, h0)) {
+                return null;
+            }
+            var h2 = ai * h1 + h0;
+            h0 = h1;
+            h1 = h2;
+            k0 = k1;
+            k1 = k2;
+        }
+        return Fraction.of(h1, k1);
+    }
+
+    private static void swap(double[] a, int width, int r1, int r2) {
+        for (int c = 0; c < width; c++) {
+            var t = a[r1 * width + c];
+            a[r1 * width + c] = a[r2 * width + c];
+            a[r2 * width + c] = t;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+
+import java.math.BigInteger;
+
+/**
+ * Fraction-free (Bareiss) determinant and adjugate of an integer matrix.
+ * Every division in the elimination is exact, so no gcd work and no op log
+ * are needed.
+ */
+final class Bareiss {
+    private Bareiss() {
+    }
+
+    // a is an n x n row-major matrix and is overwritten. Runs on longs
+    // and restarts on BigInteger if any intermediate product overflows.
+    static BigInteger det(long[] a, int n) {
+        var original = a.clone();
+        long prev = 1;
+        boolean negate = false;
+
+        for (int k = 0; k < n - 1; k++) {
+            if (a[k * n + k] == 0) {
+                int r = k + 1;
+                while (r < n && a[r * n + k] == 0) {
+                    r++;
+                }
+                if (r == n) {
+                    return BigInteger.ZERO;
+                }
+                swapRows(a, n, k, r);
+                negate = !negate;
+            }
+            var pk = a[k * n + k];
+            for (int i = k + 1; i < n; i++) {
+                var aik = a[i * n + k];
+                for (int j = k + 1; j < n; j++) {
+                    var x = a[i * n + j];
+                    var y = a[k * n + j];
+                    if (Fraction.mulOverflows(x, pk) || Fraction.mulOverflows(aik, y)
+                            || Fraction.subOverflows(x * pk, aik * y)) {
+                        return det(toBig(original), n);
+                    }
+                    a[i * n + j] = (x * pk - aik * y) / prev;
+                }
+                a[i * n + k] = 0;
+            }
+            prev = pk;
+        }
+        var d = BigInteger.valueOf(a[n * n - 1]);
+        return negate ? d.negate() : d;
+    }
+
+    static BigInteger det(BigInteger[] a, int n) {
+        var prev = BigInteger.ONE;
+        boolean negate = false;
+
+        for (int k = 0; k < n - 1; k++) {
+            if (a[k * n + k].signum() == 0) {
+                int r = k + 1;
+                while (r < n && a[r * n + k].signum() == 0) {
+                    r++;
+                }
+                if (r == n) {
+                    return BigInteger.ZERO;
+                }
+                swapRows(a, n, k, r);
+                negate = !negate;
+            }
+            var pk = a[k * n + k];
+            for (int i = k + 1; i < n; i++) {
+                var aik = a[i * n + k];
+                for (int j = k + 1; j < n; j++) {
+                    a[i * n + j] = a[i * n + j].multiply(pk)
+                            .subtract(aik.multiply(a[k * n + j]))
+                            .divide(prev);
+                }
+                a[i * n + k] = BigInteger.ZERO;
+            }
+            prev = pk;
+        }
+        var d = a[n * n - 1];
+        return negate ? d.negate() : d;
+    }
+
+    // Fraction-free Gauss-Jordan on [a | I]: every row but the pivot row is
+    // eliminated, so a ends as p I and the right half as p a^-1, where p is
+    // the last pivot. Writes adj(a) row-major into adj and returns det(a),
+    // or returns 0 with adj unspecified if a is singular. a is overwritten.
+    static BigInteger adjugate(BigInteger[] a, int n, BigInteger[] adj) {
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                adj[i * n + j] = i == j ? BigInteger.ONE : BigInteger.ZERO;
+            }
+        }
+        var prev = BigInteger.ONE;
+        boolean negate = false;
+
+        for (int k = 0; k < n; k++) {
+            if (a[k * n + k].signum() == 0) {
+                int r = k + 1;
+                while (r < n && a[r * n + k].signum() == 0) {
+                    r++;
+                }
+                if (r == n) {
+                    return BigInteger.ZERO;
+                }
+                swapRows(a, n, k, r);
+                swapRows(adj, n, k, r);
+                negate = !negate;
+            }
+            var pk = a[k * n + k];
+            for (int i = 0; i < n; i++) {
+                if (i == k) {
+                    continue;
+                }
+                var aik = a[i * n + k];
+                for (int j = k + 1; j < n; j++) {
+                    a[i * n + j] = a[i * n + j].multiply(pk)
+                            .subtract(aik.multiply(a[k * n + j]))
+                            .divide(prev);
+                }
+                for (int j = 0; j < n; j++) {
+                    var y = adj[k * n + j];
+                    var x = adj[i * n + j].multiply(pk);
+                    adj[i * n + j] = (y.signum() == 0 ? x : x.subtract(aik.multiply(y))).divide(prev);
+                }
+                a[i * n + k] = BigInteger.ZERO;
+            }
+            prev = pk;
+        }
+        if (negate) {
+            for (int i = 0; i < n * n; i++) {
+                adj[i] = adj[i].negate();
+            }
+            return prev.negate();
+        }
+        return prev;
+    }
+
+    private static void swapRows(long[] a, int n, int r1, int r2) {
+        for (int j = 0; j < n; j++) {
+            var tmp = a[r1 * n + j];
+            a[r1 * n + j] = a[r2 * n + j];
+            a[r2 * n + j] = tmp;
+        }
+    }
+
+    private static void swapRows(Object[] a, int n, int r1, int r2) {
+        for (int j = 0; j < n; j++) {
+            var tmp = a[r1 * n + j];
+            a[r1 * n + j] = a[r2 * n + j];
+            a[r2 * n + j] = tmp;
+        }
+    }
+
+    private static BigInteger[] toBig(long[] a) {
+        var b = new BigInteger[a.length];
+        for (int i = 0; i < a.length; i++) {
+            b[i] = BigInteger.valueOf(a[i]);
+        }
+        return b;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.rvec;
+
+import java.math.BigInteger;
+
+/**
+ * Division-free (Berkowitz) characteristic polynomial of an integer
+ * matrix. Only products and sums of entries are taken, so integer input
+ * stays integer, no pivoting is needed and no op log is kept.
+ * <p>
+ * The polynomial of each leading principal submatrix is the previous one
+ * times a lower triangular Toeplitz matrix whose column is 1, -a_rr and
+ * -R A_r^k C for the row R and column C bordering A_r. That makes n
+ * steps of up to n matrix-vector products, O(n^4) overall.
+ */
+final class Berkowitz {
+    private Berkowitz() {
+    }
+
+    // Coefficients of det(xI - A), constant term first, for the n x n
+    // row-major a. Runs on longs and restarts on BigInteger if anything
+    // overflows.
+    static BigInteger[] charPoly(long[] a, int n) {
+        long[] v;
+        try {
+            v = charPolyExact(a, n);
+        } catch (ArithmeticException e) {
+            return charPoly(toBig(a), n);
+        }
+        var c = new BigInteger[n + 1];
+        for (int k = 0; k <= n; k++) {
+            c[k] = BigInteger.valueOf(v[n - k]);
+        }
+        return c;
+    }
+
+    // v holds the coefficients highest degree first while it is built
+    private static long[] charPolyExact(long[] a, int n) {
+        var v = new long[n + 1];
+        var t = new long[n + 1];
+        var w = new long[n];
+        var next = new long[n];
+        v[0] = 1;
+        v[1] = Math.negateExact(a[0]);
+        for (int r = 1; r < n; r++) {
+            t[0] = 1;
+            t[1] = Math.negateExact(a[r * n + r]);
+            for (int i = 0; i < r; i++) {
+                w[i] = a[i * n + r];
+            }
+            for (int k = 0; k < r; k++) {
+                long s = 0;
+                for (int j = 0; j < r; j++) {
+                    s = Math.addExact(s, Math.multiplyExact(a[r * n + j], w[j]));
+                }
+                t[k + 2] = Math.negateExact(s);
+                if (k == r - 1) {
+                    break;
+                }
+                for (int i = 0; i < r; i++) {
+                    long x = 0;
+                    for (int j = 0; j < r; j++) {
+                        x = Math.addExact(x, Math.multiplyExact(a[i * n + j], w[j]));
+                    }
+                    next[i] = x;
+                }
+                var tmp = w;
+                w = next;
+                next = tmp;
+            }
+            // v = T v, top down so that v[0..i-1] are still the old values
+            for (int i = r + 1; i >= 0; i--) {
+                long s = 0;
+                for (int j = Math.max(0, i - r - 1); j <= Math.min(i, r); j++) {
+                    s = Math.addExact(s, Math.multiplyExact(t[i - j], v[j]));
+                }
+                v[i] = s;
+            }
+        }
+        return v;
+    }
+
+    static BigInteger[] charPoly(BigInteger[] a, int n) {
+        var v = new BigInteger[n + 1];
+        var t = new BigInteger[n + 1];
+        var w = new BigInteger[n];
+        var next = new BigInteger[n];
+        v[0] = BigInteger.ONE;
+        v[1] = a[0].negate();
+        for (int r = 1; r < n; r++) {
+            t[0] = BigInteger.ONE;
+            t[1] = a[r * n + r].negate();
+            for (int i = 0; i < r; i++) {
+                w[i] = a[i * n + r];
+            }
+            for (int k = 0; k < r; k++) {
+                var s = BigInteger.ZERO;
+                for (int j = 0; j < r; j++) {
+                    s = s.add(a[r * n + j].multiply(w[j]));
+                }
+                t[k + 2] = s.negate();
+                if (k == r - 1) {
+                    break;
+                }
+                for (int i = 0; i < r; i++) {
+                    var x = BigInteger.ZERO;
+                    for (int j = 0; j < r; j++) {
+                        x = x.add(a[i * n + j].multiply(w[j]));
+                    }
+                    next[i] = x;
+                }
+                var tmp = w;
+                w = next;
+                next = tmp;
+            }
+            for (int i = r + 1; i >= 0; i--) {
+                var s = BigInteger.ZERO;
+                for (int j = Math.max(0, i - r - 1); j <= Math.min(i, r); j++) {
+                    s = s.add(t[i - j].multiply(v[j]));
+                }
+                v[i] = s;
+            }
+        }
+        var c = new BigInteger[n + 1];
+        for (int k = 0; k <= n; k++) {
+            c[k] = v[n - k];
+        }
+        return c;
+    }
+
+    private static BigInteger[] toBig(long[] a) {
+        var b = new BigInteger[a.length];
+        for (int i = 0; i < a.length; i++) {
+            b[i] = BigInteger.valueOf(a[i]);
+        }
+        return b;
+    }
+}
@@ -0,0 +1,718 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Dense rational matrix stored row-major as two contiguous long arrays
+ * (numerators and denominators) instead of a Fraction[][].
+ * <p>
+ * Cells stay on the primitive path as long as their reduced value fits in
+ * a long pair. A cell that overflows is spilled to a lazily allocated
+ * Fraction side table and marked with a zero denominator, so results are
+ * always exact.
+ */
+@SuppressWarnings("unused")
+public class FlatRVec {
+    private final int m;
+    private final int n;
+    private final long[] num;
+    private final long[] den;
+    private Fraction[] wide;
+
+    private FlatRVec(int m, int n) {
+        if (m < 1 || n < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.m = m;
+        this.n = n;
+        this.num = new long[m * n];
+        this.den = new long[m * n];
+    }
+
+    public static FlatRVec zeros(int m, int n) {
+        var fv = new FlatRVec(m, n);
+        Arrays.fill(fv.den, 1);
+        return fv;
+    }
+
+    public static FlatRVec eye(int n) {
+        var fv = zeros(n, n);
+        for (int i = 0; i < n; i++) {
+            fv.num[i * n + i] = 1;
+        }
+        return fv;
+    }
+
+    public static FlatRVec of(RVec rv) {
+        var fv = new FlatRVec(rv.getRows(), rv.getCols());
+        for (int i = 0; i < fv.m; i++) {
+            for (int j = 0; j < fv.n; j++) {
+                fv.set(i * fv.n + j, rv.get(i, j));
+            }
+        }
+        return fv;
+    }
+
+    public RVec toVec() {
+        var ma = new Fraction[m][n];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                ma[i][j] = cell(i * n + j);
+            }
+        }
+        return new RVec(m, n, ma);
+    }
+
+    public int getRows() {
+        return m;
+    }
+
+    public int getCols() {
+        return n;
+    }
+
+    public Fraction get(int i, int j) {
+        if (i < 0 || i >= m || j < 0 || j >= n) {
+            throw new IndexOutOfBoundsException();
+        }
+        return cell(i * n + j);
+    }
+
+    private Fraction cell(int i) {
+        return den[i] == 0 ? wide[i] : Fraction.reduced(num[i], den[i]);
+    }
+
+    private boolean isZeroCell(int i) {
+        return num[i] == 0 && den[i] != 0;
+    }
+
+    private void set(int i, Fraction f) {
+        if (f.fitsLong()) {
+            num[i] = f.getNum();
+            den[i] = f.getDen();
+            if (wide != null) {
+                wide[i] = null;
+            }
+        } else {
+            wideTable()[i] = f;
+            num[i] = 0;
+            den[i] = 0;
+        }
+    }
+
+    // synchronized so that parallel kernels writing disjoint cells agree
+    // on a single side table
+    private synchronized Fraction[] wideTable() {
+        if (wide == null) {
+            wide = new Fraction[num.length];
+        }
+        return wide;
+    }
+
+    public FlatRVec copy() {
+        var fv = new FlatRVec(m, n);
+        System.arraycopy(num, 0, fv.num, 0, num.length);
+        System.arraycopy(den, 0, fv.den, 0, den.length);
+        if (wide != null) {
+            fv.wide = wide.clone();
+        }
+        return fv;
+    }
+
+    public FlatRVec transpose() {
+        var fv = new FlatRVec(n, m);
+        if (wide != null) {
+            fv.wide = new Fraction[num.length];
+        }
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                var a = i * n + j;
+                var b = j * m + i;
+                fv.num[b] = num[a];
+                fv.den[b] = den[a];
+                if (wide != null) {
+                    fv.wide[b] = wide[a];
+                }
+            }
+        }
+        return fv;
+    }
+
+    public FlatRVec add(FlatRVec other) {
+        if (m != other.m || n != other.n) {
+            throw new ArithmeticException("addition is undefined");
+        }
+        var fv = new FlatRVec(m, n);
+        var t = new long[2];
+        for (int i = 0; i < num.length; i++) {
+            if (den[i] != 0 && other.den[i] != 0
+                    && Fraction.addTo(num[i], den[i], other.num[i], other.den[i], t)) {
+                fv.num[i] = t[0];
+                fv.den[i] = t[1];
+            } else {
+                fv.set(i, cell(i).add(other.cell(i)));
+            }
+        }
+        return fv;
+    }
+
+    public FlatRVec sub(FlatRVec other) {
+        if (m != other.m || n != other.n) {
+            throw new ArithmeticException("subtraction is undefined");
+        }
+        var fv = new FlatRVec(m, n);
+        var t = new long[2];
+        for (int i = 0; i < num.length; i++) {
+            if (den[i] != 0 && other.den[i] != 0
+                    && Fraction.addTo(num[i], den[i], -other.num[i], other.den[i], t)) {
+                fv.num[i] = t[0];
+                fv.den[i] = t[1];
+            } else {
+                fv.set(i, cell(i).sub(other.cell(i)));
+            }
+        }
+        return fv;
+    }
+
+    public FlatRVec mul(Fraction k) {
+        var fv = new FlatRVec(m, n);
+        var fits = k.fitsLong();
+        var kn = fits ? k.getNum() : 0;
+        var kd = fits ? k.getDen() : 0;
+        var t = new long[2];
+        for (int i = 0; i < num.length; i++) {
+            if (fits && den[i] != 0 && Fraction.mulTo(num[i], den[i], kn, kd, t)) {
+                fv.num[i] = t[0];
+                fv.den[i] = t[1];
+            } else {
+                fv.set(i, cell(i).mul(k));
+            }
+        }
+        return fv;
+    }
+
+    public FlatRVec neg() {
+        var fv = new FlatRVec(m, n);
+        for (int i = 0; i < num.length; i++) {
+            if (den[i] != 0) {
+                fv.num[i] = -num[i];
+                fv.den[i] = den[i];
+            } else {
+                fv.set(i, wide[i].neg());
+            }
+        }
+        return fv;
+    }
+
+    public FlatRVec dot(FlatRVec other) {
+        if (n != other.m) {
+            throw new ArithmeticException();
+        }
+        // pack the right operand column-major so both operands of each
+        // output cell are read as contiguous runs
+        var bt = other.transpose();
+        var fv = new FlatRVec(m, other.n);
+        var task = new DotTask(this, bt, fv, 0, m, 0, other.n);
+        if ((long) m * n * other.n < DOT_PARALLEL_WORK) {
+            task.compute();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+        return fv;
+    }
+
+    private static final int DOT_BLOCK = 64;
+    private static final long DOT_PARALLEL_WORK = 1L << 18;
+
+    // Computes the output tile rows [i0, i1) x cols [j0, j1), splitting
+    // it in halves until it is at most DOT_BLOCK square.
+    private static class DotTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FlatRVec a;
+        private final FlatRVec bt;
+        private final FlatRVec out;
+        private final int i0, i1, j0, j1;
+
+        DotTask(FlatRVec a, FlatRVec bt, FlatRVec out, int i0, int i1, int j0, int j1) {
+            this.a = a;
+            this.bt = bt;
+            this.out = out;
+            this.i0 = i0;
+            this.i1 = i1;
+            this.j0 = j0;
+            this.j1 = j1;
+        }
+
+        @Override
+        protected void compute() {
+            if (i1 - i0 > DOT_BLOCK || j1 - j0 > DOT_BLOCK) {
+                if (i1 - i0 >= j1 - j0) {
+                    var mid = (i0 + i1) >>> 1;
+                    invokeAll(new DotTask(a, bt, out, i0, mid, j0, j1),
+                            new DotTask(a, bt, out, mid, i1, j0, j1));
+                } else {
+                    var mid = (j0 + j1) >>> 1;
+                    invokeAll(new DotTask(a, bt, out, i0, i1, j0, mid),
+                            new DotTask(a, bt, out, i0, i1, mid, j1));
+                }
+                return;
+            }
+            var t = new long[2];
+            for (int i = i0; i < i1; i++) {
+                for (int j = j0; j < j1; j++) {
+                    dotCell(i, j, t);
+                }
+            }
+        }
+
+        // The running sum sn/sd is kept unreduced over a common
+        // denominator that only grows when a product brings a new factor,
+        // and is normalized once at the end.
+        private void dotCell(int i, int j, long[] t) {
+            var n = a.n;
+            var ao = i * n;
+            var bo = j * n;
+            long sn = 0;
+            long sd = 1;
+            Fraction s = null;
+            for (int k = 0; k < n; k++) {
+                var an = a.num[ao + k];
+                var ad = a.den[ao + k];
+                var bn = bt.num[bo + k];
+                var bd = bt.den[bo + k];
+                if (s == null) {
+                    if ((an == 0 && ad != 0) || (bn == 0 && bd != 0)) {
+                        continue;
+                    }
+                    if (ad == 1 && bd == 1) {
+                        if (!Fraction.mulOverflows(an, bn) && !Fraction.mulOverflows(an * bn, sd)
+                                && !Fraction.addOverflows(sn, an * bn * sd)) {
+                            sn += an * bn * sd;
+                            continue;
+                        }
+                    } else if (ad != 0 && bd != 0 && Fraction.mulTo(an, ad, bn, bd, t)) {
+                        var pn = t[0];
+                        var pd = t[1];
+                        if (sd % pd == 0) {
+                            var f = sd / pd;
+                            if (!Fraction.mulOverflows(pn, f) && !Fraction.addOverflows(sn, pn * f)) {
+                                sn += pn * f;
+                                continue;
+                            }
+                        } else {
+                            var g = Fraction.gcd(sd, pd);
+                            var sf = pd / g;
+                            var pf = sd / g;
+                            if (!Fraction.mulOverflows(sd, sf) && !Fraction.mulOverflows(sn, sf)
+                                    && !Fraction.mulOverflows(pn, pf)
+                                    && !Fraction.addOverflows(sn * sf, pn * pf)) {
+                                sn = sn * sf + pn * pf;
+                                sd *= sf;
+                                continue;
+                            }
+                        }
+                    }
+                    s = Fraction.of(sn, sd);
+                }
+                s = s.add(a.cell(ao + k).mul(bt.cell(bo + k)));
+            }
+            if (s == null) {
+                s = Fraction.of(sn, sd);
+            }
+            out.set(i * out.n + j, s);
+        }
+    }
+
+    // Below this size Strassen falls back to the classic tiled kernel.
+    // Rational products gain from 32-64 onwards, integer ones from 128.
+    public static final int STRASSEN_CROSSOVER = 64;
+
+    public FlatRVec dotStrassen(FlatRVec other) {
+        return dotStrassen(other, STRASSEN_CROSSOVER);
+    }
+
+    // Strassen-Winograd multiplication: 7 recursive products and 15
+    // additions per level. Operands are zero-padded to c * 2^k with
+    // c <= crossover, so every level splits evenly and padding stays
+    // below 2^k rows.
+    public FlatRVec dotStrassen(FlatRVec other, int crossover) {
+        if (n != other.m) {
+            throw new ArithmeticException();
+        }
+        if (crossover < 1) {
+            throw new IllegalArgumentException();
+        }
+        var d = Math.max(m, Math.max(n, other.n));
+        if (d <= crossover) {
+            return dot(other);
+        }
+        int levels = 0;
+        int c = d;
+        while (c > crossover) {
+            c = (c + 1) / 2;
+            levels++;
+        }
+        var s = c << levels;
+        var a = block(0, 0, s, s);
+        var b = other.block(0, 0, s, s);
+        var r = ForkJoinPool.commonPool().invoke(new StrassenTask(a, b, crossover));
+        return r.block(0, 0, m, other.n);
+    }
+
+    // rows x cols block starting at (i0, j0); cells outside are zero
+    private FlatRVec block(int i0, int j0, int rows, int cols) {
+        var fv = zeros(rows, cols);
+        var h = Math.min(rows, m - i0);
+        var w = Math.min(cols, n - j0);
+        for (int i = 0; i < h; i++) {
+            var src = (i0 + i) * n + j0;
+            var dst = i * cols;
+            System.arraycopy(num, src, fv.num, dst, w);
+            System.arraycopy(den, src, fv.den, dst, w);
+            if (wide != null) {
+                System.arraycopy(wide, src, fv.wideTable(), dst, w);
+            }
+        }
+        return fv;
+    }
+
+    private static FlatRVec quadrants(FlatRVec c11, FlatRVec c12, FlatRVec c21, FlatRVec c22) {
+        var h = c11.m;
+        var s = 2 * h;
+        var fv = new FlatRVec(s, s);
+        FlatRVec[] parts = {c11, c12, c21, c22};
+        for (int q = 0; q < 4; q++) {
+            var part = parts[q];
+            var i0 = (q / 2) * h;
+            var j0 = (q % 2) * h;
+            for (int i = 0; i < h; i++) {
+                var dst = (i0 + i) * s + j0;
+                System.arraycopy(part.num, i * h, fv.num, dst, h);
+                System.arraycopy(part.den, i * h, fv.den, dst, h);
+                if (part.wide != null) {
+                    System.arraycopy(part.wide, i * h, fv.wideTable(), dst, h);
+                }
+            }
+        }
+        return fv;
+    }
+
+    private static class StrassenTask extends RecursiveTask<FlatRVec> {
+        private static final long serialVersionUID = 1L;
+
+        private final FlatRVec a;
+        private final FlatRVec b;
+        private final int crossover;
+
+        StrassenTask(FlatRVec a, FlatRVec b, int crossover) {
+            this.a = a;
+            this.b = b;
+            this.crossover = crossover;
+        }
+
+        @Override
+        protected FlatRVec compute() {
+            var s = a.m;
+            if (s <= crossover || (s & 1) != 0) {
+                return a.dot(b);
+            }
+            var h = s / 2;
+            var a11 = a.block(0, 0, h, h);
+            var a12 = a.block(0, h, h, h);
+            var a21 = a.block(h, 0, h, h);
+            var a22 = a.block(h, h, h, h);
+            var b11 = b.block(0, 0, h, h);
+            var b12 = b.block(0, h, h, h);
+            var b21 = b.block(h, 0, h, h);
+            var b22 = b.block(h, h, h, h);
+
+            var s1 = a21.add(a22);
+            var s2 = s1.sub(a11);
+            var s3 = a11.sub(a21);
+            var s4 = a12.sub(s2);
+            var t1 = b12.sub(b11);
+            var t2 = b22.sub(t1);
+            var t3 = b22.sub(b12);
+            var t4 = t2.sub(b21);
+
+            var m1 = new StrassenTask(a11, b11, crossover);
+            var m2 = new StrassenTask(a12, b21, crossover);
+            var m3 = new StrassenTask(s4, b22, crossover);
+            var m4 = new StrassenTask(a22, t4, crossover);
+            var m5 = new StrassenTask(s1, t1, crossover);
+            var m6 = new StrassenTask(s2, t2, crossover);
+            var m7 = new StrassenTask(s3, t3, crossover);
+            invokeAll(m1, m2, m3, m4, m5, m6, m7);
+
+            var p1 = m1.join();
+            var u2 = p1.add(m6.join());
+            var u3 = u2.add(m7.join());
+            var u4 = u2.add(m5.join());
+            var c11 = p1.add(m2.join());
+            var c12 = u4.add(m3.join());
+            var c21 = u3.sub(m4.join());
+            var c22 = u3.add(m5.join());
+            return quadrants(c11, c12, c21, c22);
+        }
+    }
+
+    public Fraction trace() {
+        var s = Fraction.ZERO;
+        var nd = Math.min(m, n);
+        for (int i = 0; i < nd; i++) {
+            s = s.add(cell(i * n + i));
+        }
+        return s;
+    }
+
+    private void swapRows(int r1, int r2) {
+        var a = r1 * n;
+        var b = r2 * n;
+        for (int j = 0; j < n; j++) {
+            var tn = num[a + j];
+            var td = den[a + j];
+            num[a + j] = num[b + j];
+            den[a + j] = den[b + j];
+            num[b + j] = tn;
+            den[b + j] = td;
+            if (wide != null) {
+                var tw = wide[a + j];
+                wide[a + j] = wide[b + j];
+                wide[b + j] = tw;
+            }
+        }
+    }
+
+    // row r *= k, for columns from..n-1
+    private void scaleRow(int r, Fraction k, int from, long[] t) {
+        var fits = k.fitsLong();
+        var kn = fits ? k.getNum() : 0;
+        var kd = fits ? k.getDen() : 0;
+        for (int i = r * n + from, e = r * n + n; i < e; i++) {
+            if (isZeroCell(i)) {
+                continue;
+            }
+            if (fits && den[i] != 0 && Fraction.mulTo(num[i], den[i], kn, kd, t)) {
+                num[i] = t[0];
+                den[i] = t[1];
+            } else {
+                set(i, cell(i).mul(k));
+            }
+        }
+    }
+
+    // row r1 += k * row r2, for columns from..n-1
+    private void addRow(int r1, int r2, Fraction k, int from, long[] t) {
+        var fits = k.fitsLong();
+        var kn = fits ? k.getNum() : 0;
+        var kd = fits ? k.getDen() : 0;
+        var off = (r2 - r1) * n;
+        for (int i = r1 * n + from, e = r1 * n + n; i < e; i++) {
+            var b = i + off;
+            if (isZeroCell(b)) {
+                continue;
+            }
+            if (fits && den[i] != 0 && den[b] != 0
+                    && Fraction.mulTo(num[b], den[b], kn, kd, t)
+                    && Fraction.addTo(num[i], den[i], t[0], t[1], t)) {
+                num[i] = t[0];
+                den[i] = t[1];
+            } else {
+                set(i, cell(i).add(cell(b).mul(k)));
+            }
+        }
+    }
+
+    // Reduces this matrix in place to row echelon form with unit pivots,
+    // searching for pivots in the first cols columns only. The pivot
+    // column of each of the returned rank rows is stored in pivots.
+    private int gauss(int cols, int[] pivots, long[] t) {
+        int i = 0;
+        int j = 0;
+
+        while (i < m && j < cols) {
+            int k = i;
+            while (k < m && isZeroCell(k * n + j)) {
+                k++;
+            }
+            if (k == m) {
+                j++;
+                continue;
+            }
+            if (k != i) {
+                swapRows(i, k);
+            }
+            var pivot = cell(i * n + j);
+            if (!pivot.isOne()) {
+                scaleRow(i, pivot.recip(), j, t);
+            }
+            for (k = i + 1; k < m; k++) {
+                if (!isZeroCell(k * n + j)) {
+                    addRow(k, i, cell(k * n + j).neg(), j, t);
+                }
+            }
+            pivots[i] = j;
+            i++;
+            j++;
+        }
+        return i;
+    }
+
+    private void jordan(int[] pivots, int rank, long[] t) {
+        for (int i = rank - 1; i > 0; i--) {
+            var j = pivots[i];
+            for (int k = i - 1; k >= 0; k--) {
+                if (!isZeroCell(k * n + j)) {
+                    addRow(k, i, cell(k * n + j).neg(), j, t);
+                }
+            }
+        }
+    }
+
+    public FlatRVec rref() {
+        var fv = copy();
+        var t = new long[2];
+        var pivots = new int[m];
+        var rank = fv.gauss(n, pivots, t);
+        fv.jordan(pivots, rank, t);
+        return fv;
+    }
+
+    public int rank() {
+        return copy().gauss(n, new int[m], new long[2]);
+    }
+
+    public Fraction det() {
+        if (m != n) {
+            throw new UnsupportedOperationException();
+        }
+        if (isIntegral()) {
+            return Fraction.of(Bareiss.det(num.clone(), n), BigInteger.ONE);
+        }
+        var fv = copy();
+        var t = new long[2];
+        var prod = Fraction.ONE;
+
+        for (int j = 0; j < n; j++) {
+            int k = j;
+            while (k < n && fv.isZeroCell(k * n + j)) {
+                k++;
+            }
+            if (k == n) {
+                return Fraction.ZERO;
+            }
+            if (k != j) {
+                fv.swapRows(j, k);
+                prod = prod.neg();
+            }
+            var pivot = fv.cell(j * n + j);
+            prod = prod.mul(pivot);
+            var r = pivot.recip();
+            for (k = j + 1; k < n; k++) {
+                if (!fv.isZeroCell(k * n + j)) {
+                    fv.addRow(k, j, fv.cell(k * n + j).mul(r).neg(), j, t);
+                }
+            }
+        }
+        return prod;
+    }
+
+    public FlatRVec inv() {
+        if (m != n) {
+            throw new UnsupportedOperationException();
+        }
+        var w = 2 * n;
+        var aug = zeros(n, w);
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(num, i * n, aug.num, i * w, n);
+            System.arraycopy(den, i * n, aug.den, i * w, n);
+            if (wide != null) {
+                if (aug.wide == null) {
+                    aug.wide = new Fraction[aug.num.length];
+                }
+                System.arraycopy(wide, i * n, aug.wide, i * w, n);
+            }
+            aug.num[i * w + n + i] = 1;
+        }
+
+        var t = new long[2];
+        var pivots = new int[n];
+        if (aug.gauss(n, pivots, t) < n) {
+            throw new ArithmeticException("Matrix is not invertible");
+        }
+        aug.jordan(pivots, n, t);
+
+        var fv = new FlatRVec(n, n);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                var a = i * w + n + j;
+                var b = i * n + j;
+                if (aug.den[a] != 0) {
+                    fv.num[b] = aug.num[a];
+                    fv.den[b] = aug.den[a];
+                } else {
+                    fv.set(b, aug.wide[a]);
+                }
+            }
+        }
+        return fv;
+    }
+
+    // true if every cell is an integer on the long path
+    private boolean isIntegral() {
+        for (long d : den) {
+            if (d != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isEye() {
+        if (m != n) return false;
+
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                var c = i * n + j;
+                if (den[c] != 1 || num[c] != (i == j ? 1 : 0)) return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return toVec().toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FlatRVec fv = (FlatRVec) o;
+        if (m != fv.m || n != fv.n) return false;
+        for (int i = 0; i < num.length; i++) {
+            if (num[i] != fv.num[i] || den[i] != fv.den[i]) return false;
+            if (den[i] == 0 && !wide[i].equals(fv.wide[i])) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(m, n);
+        for (int i = 0; i < num.length; i++) {
+            var h = den[i] == 0 ? wide[i].hashCode() : Long.hashCode(num[i] * 31 + den[i]);
+            result = 31 * result + h;
+        }
+        return result;
+    }
+}
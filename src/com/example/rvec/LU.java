@@ -0,0 +1,178 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.EOp;
+import com.example.rvec.RVec.Fraction;
+
+import java.util.List;
+
+/**
+ * Reusable PA = LU factorization of a square matrix, derived from the row
+ * operations recorded by a single Gauss elimination.
+ * <p>
+ * U is the unit upper triangular echelon form produced by gauss(). L holds
+ * the pivots on its diagonal and the elimination multipliers below it. P
+ * is kept as a row permutation. Solving against the factorization costs
+ * O(n^2) per right-hand side instead of a new elimination.
+ */
+@SuppressWarnings("unused")
+public class LU {
+    private final int n;
+    private final Fraction[][] l;
+    private final Fraction[][] u;
+    private final int[] perm;
+    private final boolean negate;
+    private final int rank;
+    private volatile RVec inverse;
+
+    // u is the matrix after gauss(), ops the operations that produced it
+    LU(RVec u, List<EOp> ops) {
+        n = u.getRows();
+        this.u = new Fraction[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                this.u[i][j] = u.get(i, j);
+            }
+        }
+
+        l = new Fraction[n][n];
+        perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+            for (int j = 0; j < n; j++) {
+                l[i][j] = i == j ? Fraction.ONE : Fraction.ZERO;
+            }
+        }
+
+        boolean neg = false;
+        for (EOp op : ops) {
+            if (op.isExchange()) {
+                // multipliers already recorded move with their rows,
+                // the unit diagonal stays in place
+                var tl = l[op.row1];
+                l[op.row1] = l[op.row2];
+                l[op.row2] = tl;
+                l[op.row1][op.row2] = Fraction.ZERO;
+                l[op.row2][op.row1] = Fraction.ZERO;
+                l[op.row1][op.row1] = Fraction.ONE;
+                l[op.row2][op.row2] = Fraction.ONE;
+                var tp = perm[op.row1];
+                perm[op.row1] = perm[op.row2];
+                perm[op.row2] = tp;
+                neg = !neg;
+            } else if (op.isRowMul()) {
+                l[op.row1][op.row1] = op.k.recip();
+            } else {
+                l[op.row1][op.row2] = op.k.neg();
+            }
+        }
+        negate = neg;
+
+        int r = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (!this.u[i][j].isZero()) {
+                    r++;
+                    break;
+                }
+            }
+        }
+        rank = r;
+    }
+
+    public boolean isSingular() {
+        return rank < n;
+    }
+
+    public int rank() {
+        return rank;
+    }
+
+    public Fraction det() {
+        if (isSingular()) {
+            return Fraction.ZERO;
+        }
+        var d = Fraction.ONE;
+        for (int i = 0; i < n; i++) {
+            d = d.mul(l[i][i]);
+        }
+        return negate ? d.neg() : d;
+    }
+
+    // Solves A x = b for every column of b
+    public RVec solve(RVec b) {
+        if (b.getRows() != n) {
+            throw new IllegalArgumentException();
+        }
+        if (isSingular()) {
+            throw new RVec.SingularException("Matrix is singular");
+        }
+        var k = b.getCols();
+        var x = new Fraction[n][k];
+
+        // L y = P b
+        for (int i = 0; i < n; i++) {
+            var li = l[i];
+            var xi = x[i];
+            for (int c = 0; c < k; c++) {
+                var s = b.get(perm[i], c);
+                for (int j = 0; j < i; j++) {
+                    if (!li[j].isZero()) {
+                        s = s.sub(li[j].mul(x[j][c]));
+                    }
+                }
+                xi[c] = li[i].isOne() ? s : s.div(li[i]);
+            }
+        }
+
+        // U x = y, U has a unit diagonal
+        for (int i = n - 1; i >= 0; i--) {
+            var ui = u[i];
+            var xi = x[i];
+            for (int c = 0; c < k; c++) {
+                var s = xi[c];
+                for (int j = i + 1; j < n; j++) {
+                    if (!ui[j].isZero()) {
+                        s = s.sub(ui[j].mul(x[j][c]));
+                    }
+                }
+                xi[c] = s;
+            }
+        }
+        return new RVec(n, k, x);
+    }
+
+    public RVec inverse() {
+        var inv = inverse;
+        if (inv == null) {
+            inv = solve(RVec.eye(n));
+            inverse = inv;
+        }
+        return inv;
+    }
+
+    public RVec getL() {
+        return new RVec(n, n, copyOf(l));
+    }
+
+    public RVec getU() {
+        return new RVec(n, n, copyOf(u));
+    }
+
+    public RVec getP() {
+        var p = new Fraction[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                p[i][j] = perm[i] == j ? Fraction.ONE : Fraction.ZERO;
+            }
+        }
+        return new RVec(n, n, p);
+    }
+
+    private static Fraction[][] copyOf(Fraction[][] a) {
+        var c = new Fraction[a.length][];
+        for (int i = 0; i < a.length; i++) {
+            c[i] = a[i].clone();
+        }
+        return c;
+    }
+}
@@ -0,0 +1,584 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+
+import java.util.function.BiPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Deferred elementwise expression over RVecs. add, sub, mul, neg,
+ * transpose and the comparisons only build a node graph; toVec evaluates
+ * it in a single pass that computes each output cell straight from the
+ * source matrices, so a chain of k operations allocates one matrix
+ * instead of k. Cells are carried through the chain as num/den longs on
+ * the same kernels Fraction uses, and only the final value becomes a
+ * Fraction; a cell whose intermediate leaves the long range is recomputed
+ * through Fraction.
+ * <p>
+ * Nodes are immutable and may be shared. Consecutive scalings and
+ * negations fold into one scalar, and a double transpose cancels, when
+ * the graph is built.
+ * <p>
+ * transpose, lower, upper, slice and hstack are views: they never move
+ * data, only remap the indices passed down to their operands, and they
+ * share the source matrices. Operations that eliminate copy the view once
+ * into a matrix they then work on in place. Read-only operations on a
+ * plain RVec view use the RVec itself; on any other node they use one
+ * evaluated matrix, made on first use and kept by the node, so repeated
+ * det, rank, solve, inv and dot calls do not each pay for a copy.
+ */
+@SuppressWarnings("unused")
+public abstract class LazyRVec {
+    // cells above which toVec evaluates rows in parallel
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    final int m;
+    final int n;
+    // longs of scratch evalLong needs below its own slot
+    final int depth;
+    // false for pure views, whose cells are the source Fractions
+    final boolean computes;
+    // evaluated cells for read-only kernels, built by the first shared()
+    private volatile RVec shared;
+
+    private LazyRVec(int m, int n, int depth, boolean computes) {
+        this.m = m;
+        this.n = n;
+        this.depth = depth;
+        this.computes = computes;
+    }
+
+    public static LazyRVec of(RVec rv) {
+        return new Leaf(rv);
+    }
+
+    // cells read on demand from outside an RVec, e.g. a mapped file
+    static LazyRVec of(int m, int n, Cells cells) {
+        return new External(m, n, cells);
+    }
+
+    interface Cells {
+        Fraction get(int i, int j);
+    }
+
+    abstract Fraction at(int i, int j);
+
+    // writes cell (i, j) reduced to s[off] / s[off + 1], using the slots
+    // after it as scratch and t for kernel output; false if it does not
+    // fit in longs
+    abstract boolean evalLong(int i, int j, long[] s, int off, long[] t);
+
+    public int getRows() {
+        return m;
+    }
+
+    public int getCols() {
+        return n;
+    }
+
+    // evaluates a single cell, without materializing the expression
+    public Fraction get(int i, int j) {
+        if (i < 0 || i >= m || j < 0 || j >= n) {
+            throw new IndexOutOfBoundsException();
+        }
+        return at(i, j);
+    }
+
+    public LazyRVec add(LazyRVec other) {
+        checkSameShape(other, "addition is undefined");
+        return new Sum(this, other, false);
+    }
+
+    public LazyRVec add(RVec other) {
+        return add(of(other));
+    }
+
+    public LazyRVec sub(LazyRVec other) {
+        checkSameShape(other, "subtraction is undefined");
+        return new Sum(this, other, true);
+    }
+
+    public LazyRVec sub(RVec other) {
+        return sub(of(other));
+    }
+
+    public LazyRVec mul(Fraction k) {
+        return k.isOne() ? this : new Scale(this, k);
+    }
+
+    public LazyRVec neg() {
+        return mul(Fraction.ONE.neg());
+    }
+
+    public LazyRVec transpose() {
+        return new Transpose(this);
+    }
+
+    public LazyRVec lower() {
+        return new Triangle(this, true);
+    }
+
+    public LazyRVec upper() {
+        return new Triangle(this, false);
+    }
+
+    // rows [r0, r1) and columns [c0, c1)
+    public LazyRVec slice(int r0, int r1, int c0, int c1) {
+        if (r0 < 0 || r1 > m || r0 >= r1 || c0 < 0 || c1 > n || c0 >= c1) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (r0 == 0 && r1 == m && c0 == 0 && c1 == n) {
+            return this;
+        }
+        return new Slice(this, r0, c0, r1 - r0, c1 - c0);
+    }
+
+    public LazyRVec rows(int r0, int r1) {
+        return slice(r0, r1, 0, n);
+    }
+
+    public LazyRVec cols(int c0, int c1) {
+        return slice(0, m, c0, c1);
+    }
+
+    public LazyRVec hstack(LazyRVec... o) {
+        var parts = new LazyRVec[o.length + 1];
+        parts[0] = this;
+        for (int i = 0; i < o.length; i++) {
+            if (o[i].m != m) {
+                throw new IllegalArgumentException();
+            }
+            parts[i + 1] = o[i];
+        }
+        return new HStack(parts);
+    }
+
+    public LazyRVec hstack(RVec... o) {
+        var parts = new LazyRVec[o.length];
+        for (int i = 0; i < o.length; i++) {
+            parts[i] = of(o[i]);
+        }
+        return hstack(parts);
+    }
+
+    public LazyRVec compareEquals(LazyRVec o) {
+        return compare(o, Fraction::equals);
+    }
+
+    public LazyRVec compareNotEquals(LazyRVec o) {
+        return compare(o, Fraction::notEquals);
+    }
+
+    public LazyRVec compareGreater(LazyRVec o) {
+        return compare(o, Fraction::isGreater);
+    }
+
+    public LazyRVec compareGreaterEqual(LazyRVec o) {
+        return compare(o, Fraction::isGreaterEqual);
+    }
+
+    public LazyRVec compareLesser(LazyRVec o) {
+        return compare(o, Fraction::isLesser);
+    }
+
+    public LazyRVec compareLesserEqual(LazyRVec o) {
+        return compare(o, Fraction::isLesserEqual);
+    }
+
+    private LazyRVec compare(LazyRVec o, BiPredicate<Fraction, Fraction> cond) {
+        if (m != o.m || n != o.n) {
+            throw new IllegalArgumentException();
+        }
+        return new Compare(this, o, cond);
+    }
+
+    private void checkSameShape(LazyRVec other, String message) {
+        if (m != other.m || n != other.n) {
+            throw new ArithmeticException(message);
+        }
+    }
+
+    public RVec toVec() {
+        var ma = new Fraction[m][n];
+        if ((long) m * n >= PARALLEL_THRESHOLD && m > 1) {
+            IntStream.range(0, m).parallel().forEach(i -> evalRow(i, ma[i]));
+        } else {
+            for (int i = 0; i < m; i++) {
+                evalRow(i, ma[i]);
+            }
+        }
+        return new RVec(m, n, ma);
+    }
+
+    private void evalRow(int i, Fraction[] row) {
+        if (!computes) {
+            for (int j = 0; j < n; j++) {
+                row[j] = at(i, j);
+            }
+            return;
+        }
+        var s = new long[depth + 2];
+        var t = new long[2];
+        for (int j = 0; j < n; j++) {
+            row[j] = evalLong(i, j, s, 0, t) ? Fraction.reduced(s[0], s[1]) : at(i, j);
+        }
+    }
+
+    // a matrix with the same cells that callers only read; nodes are
+    // immutable, so it is evaluated once and kept
+    RVec shared() {
+        var rv = shared;
+        if (rv == null) {
+            rv = toVec();
+            shared = rv;
+        }
+        return rv;
+    }
+
+    public RVec dot(RVec other) {
+        return shared().dot(other);
+    }
+
+    public RVec dot(LazyRVec other) {
+        return shared().dot(other.shared());
+    }
+
+    public Fraction det() {
+        return shared().det();
+    }
+
+    public int rank() {
+        return shared().rank();
+    }
+
+    public RVec solve(RVec b) {
+        return shared().solve(b);
+    }
+
+    public RVec inv() {
+        return shared().inv();
+    }
+
+    public RVec.Elimination gaussJordan(RVec.Elimination.Options options) {
+        return RVec.gaussJordanInPlace(toVec(), this, options);
+    }
+
+    public RVec rref() {
+        return RVec.gaussJordanInPlace(toVec(), null, RVec.Elimination.options()
+                .recording(RVec.Elimination.Recording.OFF)).getVector();
+    }
+
+    private static final class Leaf extends LazyRVec {
+        private final RVec rv;
+
+        Leaf(RVec rv) {
+            super(rv.getRows(), rv.getCols(), 0, false);
+            this.rv = rv;
+        }
+
+        @Override
+        Fraction at(int i, int j) {
+            return rv.get(i, j);
+        }
+
+        @Override
+        boolean evalLong(int i, int j, long[] s, int off, long[] t) {
+            var f = rv.get(i, j);
+            if (!f.fitsLong()) {
+                return false;
+            }
+            s[off] = f.getNum();
+            s[off + 1] = f.getDen();
+            return true;
+        }
+
+        @Override
+        public RVec toVec() {
+            return rv.copy();
+        }
+
+        @Override
+        RVec shared() {
+            return rv;
+        }
+    }
+
+    private static final class External extends LazyRVec {
+        private final Cells cells;
+
+        External(int m, int n, Cells cells) {
+            super(m, n, 0, false);
+            this.cells = cells;
+        }
+
+        @Override
+        Fraction at(int i, int j) {
+            return cells.get(i, j);
+        }
+
+        @Override
+        boolean evalLong(int i, int j, long[] s, int off, long[] t) {
+            var f = cells.get(i, j);
+            if (!f.fitsLong()) {
+                return false;
+            }
+            s[off] = f.getNum();
+            s[off + 1] = f.getDen();
+            return true;
+        }
+    }
+
+    private static final class Sum extends LazyRVec {
+        private final LazyRVec a;
+        private final LazyRVec b;
+        private final boolean subtract;
+
+        Sum(LazyRVec a, LazyRVec b, boolean subtract) {
+            super(a.m, a.n, 2 + Math.max(a.depth, b.depth), true);
+            this.a = a;
+            this.b = b;
+            this.subtract = subtract;
+        }
+
+        @Override
+        Fraction at(int i, int j) {
+            var x = a.at(i, j);
+            var y = b.at(i, j);
+            return subtract ? x.sub(y) : x.add(y);
+        }
+
+        @Override
+        boolean evalLong(int i, int j, long[] s, int off, long[] t) {
+            if (!a.evalLong(i, j, s, off, t) || !b.evalLong(i, j, s, off + 2, t)) {
+                return false;
+            }
+            // the long path never holds Long.MIN_VALUE, so negation is safe
+            var c = subtract ? -s[off + 2] : s[off + 2];
+            if (!Fraction.addTo(s[off], s[off + 1], c, s[off + 3], t)) {
+                return false;
+            }
+            s[off] = t[0];
+            s[off + 1] = t[1];
+            return true;
+        }
+    }
+
+    private static final class Scale extends LazyRVec {
+        private final LazyRVec a;
+        private final Fraction k;
+        private final boolean negate;
+
+        Scale(LazyRVec a, Fraction k) {
+            super(a.m, a.n, a.depth, true);
+            this.a = a;
+            this.k = k;
+            this.negate = k.neg().isOne();
+        }
+
+        @Override
+        Fraction at(int i, int j) {
+            var x = a.at(i, j);
+            return negate ? x.neg() : x.mul(k);
+        }
+
+        @Override
+        boolean evalLong(int i, int j, long[] s, int off, long[] t) {
+            if (!a.evalLong(i, j, s, off, t)) {
+                return false;
+            }
+            if (negate) {
+                s[off] = -s[off];
+                return true;
+            }
+            if (!k.fitsLong() || !Fraction.mulTo(s[off], s[off + 1], k.getNum(), k.getDen(), t)) {
+                return false;
+            }
+            s[off] = t[0];
+            s[off + 1] = t[1];
+            return true;
+        }
+
+        @Override
+        public LazyRVec mul(Fraction k2) {
+            return a.mul(k.mul(k2));
+        }
+    }
+
+    private static final class Transpose extends LazyRVec {
+        private final LazyRVec a;
+
+        Transpose(LazyRVec a) {
+            super(a.n, a.m, a.depth, a.computes);
+            this.a = a;
+        }
+
+        @Override
+        Fraction at(int i, int j) {
+            return a.at(j, i);
+        }
+
+        @Override
+        boolean evalLong(int i, int j, long[] s, int off, long[] t) {
+            return a.evalLong(j, i, s, off, t);
+        }
+
+        // scalings sink below transposes, so they stay adjacent and fold
+        @Override
+        public LazyRVec mul(Fraction k) {
+            return k.isOne() ? this : a.mul(k).transpose();
+        }
+
+        @Override
+        public LazyRVec transpose() {
+            return a;
+        }
+    }
+
+    private static final class Compare extends LazyRVec {
+        private final LazyRVec a;
+        private final LazyRVec b;
+        private final BiPredicate<Fraction, Fraction> cond;
+
+        Compare(LazyRVec a, LazyRVec b, BiPredicate<Fraction, Fraction> cond) {
+            super(a.m, a.n, 0, true);
+            this.a = a;
+            this.b = b;
+            this.cond = cond;
+        }
+
+        @Override
+        Fraction at(int i, int j) {
+            return cond.test(a.at(i, j), b.at(i, j)) ? Fraction.ONE : Fraction.ZERO;
+        }
+
+        // the operands are compared as Fractions; the 0/1 result always fits
+        @Override
+        boolean evalLong(int i, int j, long[] s, int off, long[] t) {
+            s[off] = at(i, j).isZero() ? 0 : 1;
+            s[off + 1] = 1;
+            return true;
+        }
+    }
+
+    private static final class Triangle extends LazyRVec {
+        private final LazyRVec a;
+        private final boolean lower;
+
+        Triangle(LazyRVec a, boolean lower) {
+            super(a.m, a.n, a.depth, a.computes);
+            this.a = a;
+            this.lower = lower;
+        }
+
+        private boolean masked(int i, int j) {
+            return lower ? i < j : j < i;
+        }
+
+        @Override
+        Fraction at(int i, int j) {
+            return masked(i, j) ? Fraction.ZERO : a.at(i, j);
+        }
+
+        @Override
+        boolean evalLong(int i, int j, long[] s, int off, long[] t) {
+            if (masked(i, j)) {
+                s[off] = 0;
+                s[off + 1] = 1;
+                return true;
+            }
+            return a.evalLong(i, j, s, off, t);
+        }
+    }
+
+    private static final class Slice extends LazyRVec {
+        private final LazyRVec a;
+        private final int r0;
+        private final int c0;
+
+        Slice(LazyRVec a, int r0, int c0, int m, int n) {
+            super(m, n, a.depth, a.computes);
+            this.a = a;
+            this.r0 = r0;
+            this.c0 = c0;
+        }
+
+        @Override
+        Fraction at(int i, int j) {
+            return a.at(r0 + i, c0 + j);
+        }
+
+        @Override
+        boolean evalLong(int i, int j, long[] s, int off, long[] t) {
+            return a.evalLong(r0 + i, c0 + j, s, off, t);
+        }
+
+        @Override
+        public LazyRVec slice(int r0, int r1, int c0, int c1) {
+            if (r0 < 0 || r1 > m || r0 >= r1 || c0 < 0 || c1 > n || c0 >= c1) {
+                throw new IndexOutOfBoundsException();
+            }
+            // a slice of a slice reads straight from the outer operand
+            return a.slice(this.r0 + r0, this.r0 + r1, this.c0 + c0, this.c0 + c1);
+        }
+    }
+
+    private static final class HStack extends LazyRVec {
+        private final LazyRVec[] parts;
+        // first column of each part, plus the total width
+        private final int[] offsets;
+
+        HStack(LazyRVec[] parts) {
+            super(parts[0].m, width(parts), maxDepth(parts), anyComputes(parts));
+            this.parts = parts;
+            offsets = new int[parts.length + 1];
+            for (int p = 0; p < parts.length; p++) {
+                offsets[p + 1] = offsets[p] + parts[p].n;
+            }
+        }
+
+        private int part(int j) {
+            int p = 0;
+            while (offsets[p + 1] <= j) {
+                p++;
+            }
+            return p;
+        }
+
+        @Override
+        Fraction at(int i, int j) {
+            var p = part(j);
+            return parts[p].at(i, j - offsets[p]);
+        }
+
+        @Override
+        boolean evalLong(int i, int j, long[] s, int off, long[] t) {
+            var p = part(j);
+            return parts[p].evalLong(i, j - offsets[p], s, off, t);
+        }
+
+        private static int width(LazyRVec[] parts) {
+            int w = 0;
+            for (LazyRVec p : parts) {
+                w += p.n;
+            }
+            return w;
+        }
+
+        private static int maxDepth(LazyRVec[] parts) {
+            int d = 0;
+            for (LazyRVec p : parts) {
+                d = Math.max(d, p.depth);
+            }
+            return d;
+        }
+
+        private static boolean anyComputes(LazyRVec[] parts) {
+            for (LazyRVec p : parts) {
+                if (p.computes) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -16,12 +16,10 @@ public class Main {
         rv = RVec.rowBuilder(3).addRow(7,4,-2).addRow(3,8,6).addRow(10,12,5).toVec();
         rv = RVec.rowBuilder(3).addRow(2,2,-2).addRow(-2,1,-7).addRow(-2,-1,-1).toVec();
 
-        RVec.inspector = (op, vec) -> {
-            System.out.println(op);
-            System.out.println(vec);
-        };
-
-        RVec.inspector = null;
+//        rv.gaussJordan(RVec.Elimination.options().inspector((op, vec) -> {
+//            System.out.println(op);
+//            System.out.println(vec);
+//        }));
 
         System.out.println(rv);
 //        var e = rv.gaussJordan();
@@ -0,0 +1,285 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+
+import java.util.Arrays;
+
+/**
+ * Gaussian elimination on a sparse matrix with Markowitz pivot selection.
+ * <p>
+ * At each step the pivot is the non-zero a[i][j] among the shortest active
+ * rows that minimizes (r_i - 1)(c_j - 1), where r_i and c_j count the
+ * non-zeros of its row and column in the active submatrix. This bounds the
+ * fill-in the step can create. Arithmetic is exact, so any non-zero is a
+ * valid pivot and no stability threshold is needed. Rows are eliminated
+ * only below the pivot, keeping each pivot row frozen for back substitution.
+ */
+final class Markowitz {
+    // number of shortest rows examined per step
+    private static final int SEARCH_ROWS = 4;
+
+    private final int m;
+    private final int n;
+    private final int[][] cols;
+    private final Fraction[][] vals;
+    private final int[] sizes;
+    private final int[] colCount;
+    private final int[][] colRows;
+    private final int[] colRowsSize;
+    private final Fraction[][] rhs;
+
+    private final int[] pivRow;
+    private final int[] pivCol;
+    private int rank = -1;
+
+    // b may be null when there is no right-hand side
+    Markowitz(SparseRVec a, RVec b) {
+        m = a.getRows();
+        n = a.getCols();
+        cols = new int[m][];
+        vals = new Fraction[m][];
+        sizes = new int[m];
+        colCount = new int[n];
+        for (int i = 0; i < m; i++) {
+            var s = a.rowStart(i);
+            var e = a.rowEnd(i);
+            cols[i] = new int[e - s];
+            vals[i] = new Fraction[e - s];
+            for (int p = s; p < e; p++) {
+                cols[i][p - s] = a.col(p);
+                vals[i][p - s] = a.val(p);
+                colCount[a.col(p)]++;
+            }
+            sizes[i] = e - s;
+        }
+        colRows = new int[n][];
+        colRowsSize = new int[n];
+        for (int j = 0; j < n; j++) {
+            colRows[j] = new int[Math.max(4, colCount[j])];
+        }
+        for (int i = 0; i < m; i++) {
+            for (int p = 0; p < sizes[i]; p++) {
+                addColRow(cols[i][p], i);
+            }
+        }
+
+        if (b != null) {
+            rhs = new Fraction[m][b.getCols()];
+            for (int i = 0; i < m; i++) {
+                for (int c = 0; c < b.getCols(); c++) {
+                    rhs[i][c] = b.get(i, c);
+                }
+            }
+        } else {
+            rhs = null;
+        }
+        pivRow = new int[Math.min(m, n)];
+        pivCol = new int[Math.min(m, n)];
+    }
+
+    int rank() {
+        eliminate();
+        return rank;
+    }
+
+    Fraction det() {
+        eliminate();
+        if (rank < n) {
+            return Fraction.ZERO;
+        }
+        var d = Fraction.ONE;
+        for (int k = 0; k < n; k++) {
+            d = d.mul(pivotValue(k));
+        }
+        return parity(pivRow) != parity(pivCol) ? d.neg() : d;
+    }
+
+    RVec solve() {
+        eliminate();
+        if (rank < n) {
+            throw new RVec.SingularException("Matrix is singular");
+        }
+        var k = rhs[0].length;
+        var x = new Fraction[n][k];
+        // pivot row k only holds columns pivoted at step k or later
+        for (int s = n - 1; s >= 0; s--) {
+            var i = pivRow[s];
+            var q = pivCol[s];
+            var ci = cols[i];
+            var vi = vals[i];
+            var pv = pivotValue(s);
+            for (int c = 0; c < k; c++) {
+                var t = rhs[i][c];
+                for (int p = 0; p < sizes[i]; p++) {
+                    if (ci[p] != q) {
+                        t = t.sub(vi[p].mul(x[ci[p]][c]));
+                    }
+                }
+                x[q][c] = t.div(pv);
+            }
+        }
+        return new RVec(n, k, x);
+    }
+
+    private Fraction pivotValue(int k) {
+        var i = pivRow[k];
+        return vals[i][Arrays.binarySearch(cols[i], 0, sizes[i], pivCol[k])];
+    }
+
+    private void eliminate() {
+        if (rank >= 0) {
+            return;
+        }
+        var active = new boolean[m];
+        Arrays.fill(active, true);
+        var stamp = new int[m];
+        Arrays.fill(stamp, -1);
+        var shortest = new int[SEARCH_ROWS];
+
+        int step = 0;
+        while (step < pivRow.length) {
+            // the SEARCH_ROWS shortest non-empty active rows, by insertion
+            int found = 0;
+            for (int i = 0; i < m; i++) {
+                if (!active[i] || sizes[i] == 0) {
+                    continue;
+                }
+                if (found < SEARCH_ROWS) {
+                    found++;
+                } else if (sizes[i] >= sizes[shortest[SEARCH_ROWS - 1]]) {
+                    continue;
+                }
+                int t = found - 1;
+                while (t > 0 && sizes[shortest[t - 1]] > sizes[i]) {
+                    shortest[t] = shortest[t - 1];
+                    t--;
+                }
+                shortest[t] = i;
+            }
+            if (found == 0) {
+                break;
+            }
+
+            int p = -1;
+            int q = -1;
+            long best = Long.MAX_VALUE;
+            for (int s = 0; s < found && best > 0; s++) {
+                var i = shortest[s];
+                long r = sizes[i] - 1;
+                for (int t = 0; t < sizes[i]; t++) {
+                    var cost = r * (colCount[cols[i][t]] - 1);
+                    if (cost < best) {
+                        best = cost;
+                        p = i;
+                        q = cols[i][t];
+                    }
+                }
+            }
+
+            pivRow[step] = p;
+            pivCol[step] = q;
+            active[p] = false;
+            for (int t = 0; t < sizes[p]; t++) {
+                colCount[cols[p][t]]--;
+            }
+
+            var pv = pivotValue(step);
+            // colRows may list a row more than once or after it lost q
+            var list = colRows[q];
+            var len = colRowsSize[q];
+            for (int t = 0; t < len; t++) {
+                var i = list[t];
+                if (!active[i] || stamp[i] == step) {
+                    continue;
+                }
+                stamp[i] = step;
+                var at = Arrays.binarySearch(cols[i], 0, sizes[i], q);
+                if (at < 0) {
+                    continue;
+                }
+                var k = vals[i][at].div(pv).neg();
+                axpy(i, p, k);
+                if (rhs != null) {
+                    var ri = rhs[i];
+                    var rp = rhs[p];
+                    for (int c = 0; c < ri.length; c++) {
+                        if (!rp[c].isZero()) {
+                            ri[c] = ri[c].add(k.mul(rp[c]));
+                        }
+                    }
+                }
+                Metrics.LINEAR_COMBINATIONS.increment();
+            }
+            step++;
+        }
+        rank = step;
+        Metrics.ELIMINATIONS.increment();
+    }
+
+    // row i += k * row p, merging the sorted sparse rows
+    private void axpy(int i, int p, Fraction k) {
+        var ci = cols[i];
+        var vi = vals[i];
+        var cp = cols[p];
+        var vp = vals[p];
+        var si = sizes[i];
+        var sp = sizes[p];
+        var nc = new int[si + sp];
+        var nv = new Fraction[si + sp];
+        int a = 0;
+        int b = 0;
+        int o = 0;
+        while (a < si || b < sp) {
+            var ca = a < si ? ci[a] : Integer.MAX_VALUE;
+            var cb = b < sp ? cp[b] : Integer.MAX_VALUE;
+            if (ca < cb) {
+                nc[o] = ca;
+                nv[o++] = vi[a++];
+            } else if (ca > cb) {
+                // fill-in
+                nc[o] = cb;
+                nv[o++] = k.mul(vp[b++]);
+                colCount[cb]++;
+                addColRow(cb, i);
+            } else {
+                var v = vi[a++].add(k.mul(vp[b++]));
+                if (v.isZero()) {
+                    colCount[ca]--;
+                } else {
+                    nc[o] = ca;
+                    nv[o++] = v;
+                }
+            }
+        }
+        cols[i] = nc;
+        vals[i] = nv;
+        sizes[i] = o;
+    }
+
+    private void addColRow(int j, int i) {
+        if (colRowsSize[j] == colRows[j].length) {
+            colRows[j] = Arrays.copyOf(colRows[j], colRows[j].length * 2);
+        }
+        colRows[j][colRowsSize[j]++] = i;
+    }
+
+    // true for an odd permutation
+    private static boolean parity(int[] perm) {
+        var seen = new boolean[perm.length];
+        boolean odd = false;
+        for (int i = 0; i < perm.length; i++) {
+            if (seen[i]) {
+                continue;
+            }
+            int len = 0;
+            for (int j = i; !seen[j]; j = perm[j]) {
+                seen[j] = true;
+                len++;
+            }
+            if (len % 2 == 0) {
+                odd = !odd;
+            }
+        }
+        return odd;
+    }
+}
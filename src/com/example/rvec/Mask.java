@@ -0,0 +1,201 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Packed m x n boolean matrix, one bit per cell in row-major order, as
+ * returned by the RVec comparisons. Counting and the logical operators work
+ * a word (64 cells) at a time. Bits past the last cell are always clear.
+ */
+@SuppressWarnings("unused")
+public class Mask {
+    private final int m;
+    private final int n;
+    private final long[] bits;
+
+    Mask(int m, int n) {
+        this(m, n, new long[words(m, n)]);
+    }
+
+    private Mask(int m, int n, long[] bits) {
+        this.m = m;
+        this.n = n;
+        this.bits = bits;
+    }
+
+    private static int words(int m, int n) {
+        return (int) (((long) m * n + 63) >>> 6);
+    }
+
+    void set(int i, int j) {
+        var b = i * n + j;
+        bits[b >>> 6] |= 1L << b;
+    }
+
+    public int getRows() {
+        return m;
+    }
+
+    public int getCols() {
+        return n;
+    }
+
+    public boolean get(int i, int j) {
+        if (i < 0 || i >= m || j < 0 || j >= n) {
+            throw new IndexOutOfBoundsException();
+        }
+        var b = i * n + j;
+        return (bits[b >>> 6] & (1L << b)) != 0;
+    }
+
+    // number of set cells
+    public int count() {
+        int c = 0;
+        for (long w : bits) {
+            c += Long.bitCount(w);
+        }
+        return c;
+    }
+
+    public boolean any() {
+        for (long w : bits) {
+            if (w != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean all() {
+        return count() == m * n;
+    }
+
+    public Mask and(Mask o) {
+        checkShape(o);
+        var r = new long[bits.length];
+        for (int w = 0; w < r.length; w++) {
+            r[w] = bits[w] & o.bits[w];
+        }
+        return new Mask(m, n, r);
+    }
+
+    public Mask or(Mask o) {
+        checkShape(o);
+        var r = new long[bits.length];
+        for (int w = 0; w < r.length; w++) {
+            r[w] = bits[w] | o.bits[w];
+        }
+        return new Mask(m, n, r);
+    }
+
+    public Mask xor(Mask o) {
+        checkShape(o);
+        var r = new long[bits.length];
+        for (int w = 0; w < r.length; w++) {
+            r[w] = bits[w] ^ o.bits[w];
+        }
+        return new Mask(m, n, r);
+    }
+
+    public Mask not() {
+        var r = new long[bits.length];
+        for (int w = 0; w < r.length; w++) {
+            r[w] = ~bits[w];
+        }
+        var tail = (int) ((long) m * n & 63);
+        if (tail != 0) {
+            r[r.length - 1] &= (1L << tail) - 1;
+        }
+        return new Mask(m, n, r);
+    }
+
+    // cells of ifTrue where the mask is set, of ifFalse elsewhere
+    public RVec select(RVec ifTrue, RVec ifFalse) {
+        checkShape(ifTrue);
+        checkShape(ifFalse);
+        var ma = new Fraction[m][n];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                ma[i][j] = get(i, j) ? ifTrue.get(i, j) : ifFalse.get(i, j);
+            }
+        }
+        return new RVec(m, n, ma);
+    }
+
+    public RVec select(RVec ifTrue, Fraction ifFalse) {
+        checkShape(ifTrue);
+        var ma = new Fraction[m][n];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                ma[i][j] = get(i, j) ? ifTrue.get(i, j) : ifFalse;
+            }
+        }
+        return new RVec(m, n, ma);
+    }
+
+    // the selected cells of rv in row-major order, visiting set bits only
+    public Fraction[] extract(RVec rv) {
+        checkShape(rv);
+        var out = new Fraction[count()];
+        int k = 0;
+        for (int w = 0; w < bits.length; w++) {
+            var word = bits[w];
+            while (word != 0) {
+                var b = (w << 6) + Long.numberOfTrailingZeros(word);
+                out[k++] = rv.get(b / n, b % n);
+                word &= word - 1;
+            }
+        }
+        return out;
+    }
+
+    // Fraction.ONE where set, Fraction.ZERO elsewhere
+    public RVec toVec() {
+        return select(RVec.ones(m, n), Fraction.ZERO);
+    }
+
+    private void checkShape(Mask o) {
+        if (m != o.m || n != o.n) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    private void checkShape(RVec rv) {
+        if (m != rv.getRows() || n != rv.getCols()) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    @Override
+    public String toString() {
+        var sb = new StringBuilder();
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                sb.append(get(i, j) ? '1' : '0');
+                if (j != n - 1) {
+                    sb.append(' ');
+                }
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Mask mask = (Mask) o;
+        return m == mask.m && n == mask.n && Arrays.equals(bits, mask.bits);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(m, n);
+        result = 31 * result + Arrays.hashCode(bits);
+        return result;
+    }
+}
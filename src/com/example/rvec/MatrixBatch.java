@@ -0,0 +1,630 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+
+import java.util.Arrays;
+
+/**
+ * Many same-shaped small matrices, packed into primitive arrays, with
+ * det, inv and solve computed for all of them at once.
+ * <p>
+ * Cells are stored cell-major: entry (i, j) of every matrix sits in one
+ * contiguous run of longs, numerators and denominators apart, so the
+ * kernels are branch-free loops over the batch that the JIT can unroll
+ * and vectorize. Square orders 1 to 4 use closed forms: the determinant
+ * and the adjugate by cofactors, 4 x 4 through the twelve 2 x 2 minors of
+ * its row pairs. Rows are first scaled to integers, and a bound on the
+ * bit length of each matrix proves the kernel cannot overflow; the few
+ * matrices past it, or whose final division overflows, are computed
+ * exactly through RVec instead. Larger orders go through RVec throughout.
+ * <p>
+ * Results are batches too: det gives 1 x 1 matrices, inv and solve give
+ * matrices that are undefined where the input was singular. Cells are
+ * brought to lowest terms when read rather than when computed.
+ */
+@SuppressWarnings("unused")
+public class MatrixBatch {
+    private static final int KERNEL_ORDER = 4;
+    // ceil(log2(k!)), the slack the k-term determinant sum needs
+    private static final int[] LOG_FACTORIAL = {0, 0, 1, 3, 5};
+
+    private final int m;
+    private final int n;
+    private final int count;
+    // index (i * n + j) * count + b
+    private final long[] num;
+    private final long[] den;
+    // cells that do not fit in longs, usually null
+    private Fraction[] wide;
+    // bitset of undefined matrices, usually null
+    private long[] undefined;
+    // 1 when every cell is an integer in a long, -1 when not, 0 if unknown
+    private int integral;
+
+    private MatrixBatch(int m, int n, int count) {
+        if (m < 1 || n < 1 || count < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.m = m;
+        this.n = n;
+        this.count = count;
+        var cells = Math.multiplyExact(Math.multiplyExact(m, n), count);
+        this.num = new long[cells];
+        this.den = new long[cells];
+    }
+
+    public static MatrixBatch of(RVec... mats) {
+        if (mats.length == 0) {
+            throw new IllegalArgumentException();
+        }
+        var batch = new MatrixBatch(mats[0].getRows(), mats[0].getCols(), mats.length);
+        for (int b = 0; b < mats.length; b++) {
+            if (mats[b].getRows() != batch.m || mats[b].getCols() != batch.n) {
+                throw new IllegalArgumentException();
+            }
+            for (int i = 0; i < batch.m; i++) {
+                for (int j = 0; j < batch.n; j++) {
+                    batch.put(batch.index(b, i, j), mats[b].get(i, j));
+                }
+            }
+        }
+        return batch;
+    }
+
+    // cells holds the matrices one after another, each row by row
+    public static MatrixBatch ofIntegers(int m, int n, long[] cells) {
+        var batch = new MatrixBatch(m, n, count(m, n, cells.length));
+        var size = m * n;
+        for (int b = 0; b < batch.count; b++) {
+            for (int c = 0; c < size; c++) {
+                var idx = c * batch.count + b;
+                batch.num[idx] = cells[b * size + c];
+                batch.den[idx] = 1;
+            }
+        }
+        batch.integral = 1;
+        return batch;
+    }
+
+    // nums and dens laid out as in ofIntegers; fractions need not be reduced
+    public static MatrixBatch ofRationals(int m, int n, long[] nums, long[] dens) {
+        if (nums.length != dens.length) {
+            throw new IllegalArgumentException();
+        }
+        var batch = new MatrixBatch(m, n, count(m, n, nums.length));
+        var size = m * n;
+        for (int b = 0; b < batch.count; b++) {
+            for (int c = 0; c < size; c++) {
+                batch.put(c * batch.count + b, nums[b * size + c], dens[b * size + c]);
+            }
+        }
+        return batch;
+    }
+
+    private static int count(int m, int n, int cells) {
+        if (m < 1 || n < 1 || cells % (m * n) != 0) {
+            throw new IllegalArgumentException();
+        }
+        return cells / (m * n);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getRows() {
+        return m;
+    }
+
+    public int getCols() {
+        return n;
+    }
+
+    public boolean isDefined(int b) {
+        checkIndex(b);
+        return defined(b);
+    }
+
+    public Fraction get(int b, int i, int j) {
+        checkIndex(b);
+        if (i < 0 || i >= m || j < 0 || j >= n) {
+            throw new IndexOutOfBoundsException();
+        }
+        return cell(index(b, i, j));
+    }
+
+    public RVec toVec(int b) {
+        checkIndex(b);
+        if (!isDefined(b)) {
+            throw new ArithmeticException("Matrix " + b + " is undefined");
+        }
+        var ma = new Fraction[m][n];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                ma[i][j] = cell(index(b, i, j));
+            }
+        }
+        return new RVec(m, n, ma);
+    }
+
+    // Operations
+
+    public MatrixBatch det() {
+        checkSquare();
+        var out = new MatrixBatch(1, 1, count);
+        if (n > KERNEL_ORDER) {
+            for (int b = 0; b < count; b++) {
+                fallbackDet(out, b);
+            }
+            return out;
+        }
+        var scale = isIntegral() ? null : new long[n * count];
+        var a = scale == null ? num : scaled(scale);
+        var d = new long[count];
+        var mag = new long[count];
+        det(n, a, d, mag, count);
+        if (scale == null) {
+            System.arraycopy(d, 0, out.num, 0, count);
+            Arrays.fill(out.den, 1);
+        }
+        for (int b = 0; b < count; b++) {
+            if (!defined(b)) {
+                out.markUndefined(b);
+                continue;
+            }
+            if (fast(scale, mag, b)) {
+                if (scale == null) {
+                    continue;
+                }
+                try {
+                    long prod = 1;
+                    for (int i = 0; i < n; i++) {
+                        prod = Math.multiplyExact(prod, scale[i * count + b]);
+                    }
+                    out.put(b, d[b], prod);
+                    continue;
+                } catch (ArithmeticException e) {
+                    // exact path below
+                }
+            }
+            fallbackDet(out, b);
+        }
+        return out;
+    }
+
+    public MatrixBatch inv() {
+        checkSquare();
+        var out = new MatrixBatch(n, n, count);
+        if (n > KERNEL_ORDER) {
+            for (int b = 0; b < count; b++) {
+                fallbackInv(out, b);
+            }
+            return out;
+        }
+        var scale = isIntegral() ? null : new long[n * count];
+        var a = scale == null ? num : scaled(scale);
+        // integral matrices take adj(A) / det(A) as is
+        var adj = scale == null ? out.num : new long[num.length];
+        var d = new long[count];
+        var mag = new long[count];
+        adjugate(n, a, adj, d, mag, count);
+        if (scale == null) {
+            // move the sign of det(A) to the numerators; matrices that took
+            // the exact path are overwritten below
+            var sign = new long[count];
+            for (int b = 0; b < count; b++) {
+                sign[b] = d[b] >> 63 | 1;
+                d[b] *= sign[b];
+            }
+            for (int c = 0; c < n * n; c++) {
+                var base = c * count;
+                for (int b = 0; b < count; b++) {
+                    out.num[base + b] *= sign[b];
+                    out.den[base + b] = d[b];
+                }
+            }
+        }
+        for (int b = 0; b < count; b++) {
+            var fast = fast(scale, mag, b);
+            if (!defined(b) || fast && d[b] == 0) {
+                out.markUndefined(b);
+                continue;
+            }
+            if (fast) {
+                if (scale == null) {
+                    continue;
+                }
+                try {
+                    // A = S^-1 A', so A^-1 = adj(A') S / det(A')
+                    for (int i = 0; i < n; i++) {
+                        for (int j = 0; j < n; j++) {
+                            var c = i * n + j;
+                            out.put(c * count + b,
+                                    Math.multiplyExact(adj[c * count + b], scale[j * count + b]), d[b]);
+                        }
+                    }
+                    continue;
+                } catch (ArithmeticException e) {
+                    // exact path below
+                }
+            }
+            fallbackInv(out, b);
+        }
+        return out;
+    }
+
+    // solves A_b X_b = rhs_b for every b
+    public MatrixBatch solve(MatrixBatch rhs) {
+        checkSquare();
+        if (rhs.count != count || rhs.m != n) {
+            throw new IllegalArgumentException();
+        }
+        var out = new MatrixBatch(n, rhs.n, count);
+        if (n > KERNEL_ORDER) {
+            for (int b = 0; b < count; b++) {
+                fallbackSolve(rhs, out, b);
+            }
+            return out;
+        }
+        var scale = isIntegral() ? null : new long[n * count];
+        var a = scale == null ? num : scaled(scale);
+        var adj = new long[num.length];
+        var d = new long[count];
+        var mag = new long[count];
+        adjugate(n, a, adj, d, mag, count);
+        var integralRhs = rhs.isIntegral();
+        var w = new long[n];
+        for (int b = 0; b < count; b++) {
+            var fast = fast(scale, mag, b) && rhs.wide == null;
+            if (!defined(b) || !rhs.defined(b) || fast && d[b] == 0) {
+                out.markUndefined(b);
+                continue;
+            }
+            if (fast) {
+                try {
+                    // x = adj(A') S y / det(A'), one column of y at a time
+                    // over the common denominator of that column
+                    for (int c = 0; c < rhs.n; c++) {
+                        long l = 1;
+                        for (int j = 0; j < n && !integralRhs; j++) {
+                            l = lcm(l, rhs.den[rhs.index(b, j, c)]);
+                        }
+                        for (int j = 0; j < n; j++) {
+                            var y = rhs.index(b, j, c);
+                            var v = l == 1 ? rhs.num[y] : Math.multiplyExact(rhs.num[y], l / rhs.den[y]);
+                            w[j] = scale == null ? v : Math.multiplyExact(v, scale[j * count + b]);
+                        }
+                        var dl = Math.multiplyExact(d[b], l);
+                        for (int i = 0; i < n; i++) {
+                            long s = 0;
+                            for (int j = 0; j < n; j++) {
+                                s = Math.addExact(s, Math.multiplyExact(adj[(i * n + j) * count + b], w[j]));
+                            }
+                            out.put(out.index(b, i, c), s, dl);
+                        }
+                    }
+                    continue;
+                } catch (ArithmeticException e) {
+                    // exact path below
+                }
+            }
+            fallbackSolve(rhs, out, b);
+        }
+        return out;
+    }
+
+    // Kernels
+
+    // The matrices with row i multiplied by the lcm of its denominators,
+    // which goes to scale. A matrix whose rows overflow, or which has a
+    // cell past long, keeps a zero scale and is left to the exact path.
+    private long[] scaled(long[] scale) {
+        var a = new long[num.length];
+        for (int b = 0; b < count; b++) {
+            if (wide != null && hasWide(b)) {
+                continue;
+            }
+            try {
+                for (int i = 0; i < n; i++) {
+                    long l = 1;
+                    for (int j = 0; j < n; j++) {
+                        var d = den[index(b, i, j)];
+                        if (d != 1) {
+                            l = lcm(l, d);
+                        }
+                    }
+                    for (int j = 0; j < n; j++) {
+                        var idx = index(b, i, j);
+                        a[idx] = l == 1 ? num[idx] : Math.multiplyExact(num[idx], l / den[idx]);
+                    }
+                    scale[i * count + b] = l;
+                }
+            } catch (ArithmeticException e) {
+                scale[b] = 0;
+            }
+        }
+        return a;
+    }
+
+    // whether the closed forms are exact for matrix b: its rows scaled
+    // and its largest entry short enough that the k! terms of k factors
+    // each stay below 2^62 in total
+    private boolean fast(long[] scale, long[] mag, int b) {
+        var bits = 64 - Long.numberOfLeadingZeros(mag[b]);
+        return (scale == null || scale[b] != 0) && n * bits + LOG_FACTORIAL[n] <= 62;
+    }
+
+    // v for v >= 0, -v - 1 otherwise; as many bits as |v|, and branch-free
+    private static long mag(long v) {
+        return v ^ (v >> 63);
+    }
+
+    private static void det(int k, long[] a, long[] d, long[] mag, int c) {
+        switch (k) {
+            case 1:
+                for (int b = 0; b < c; b++) {
+                    d[b] = a[b];
+                    mag[b] = mag(a[b]);
+                }
+                break;
+            case 2:
+                for (int b = 0; b < c; b++) {
+                    long a00 = a[b], a01 = a[b + c], a10 = a[b + 2 * c], a11 = a[b + 3 * c];
+                    d[b] = a00 * a11 - a01 * a10;
+                    mag[b] = mag(a00) | mag(a01) | mag(a10) | mag(a11);
+                }
+                break;
+            case 3:
+                for (int b = 0; b < c; b++) {
+                    long a00 = a[b], a01 = a[b + c], a02 = a[b + 2 * c];
+                    long a10 = a[b + 3 * c], a11 = a[b + 4 * c], a12 = a[b + 5 * c];
+                    long a20 = a[b + 6 * c], a21 = a[b + 7 * c], a22 = a[b + 8 * c];
+                    d[b] = a00 * (a11 * a22 - a12 * a21)
+                            - a01 * (a10 * a22 - a12 * a20)
+                            + a02 * (a10 * a21 - a11 * a20);
+                    mag[b] = mag(a00) | mag(a01) | mag(a02) | mag(a10) | mag(a11) | mag(a12)
+                            | mag(a20) | mag(a21) | mag(a22);
+                }
+                break;
+            default:
+                for (int b = 0; b < c; b++) {
+                    long a00 = a[b], a01 = a[b + c], a02 = a[b + 2 * c], a03 = a[b + 3 * c];
+                    long a10 = a[b + 4 * c], a11 = a[b + 5 * c], a12 = a[b + 6 * c], a13 = a[b + 7 * c];
+                    long a20 = a[b + 8 * c], a21 = a[b + 9 * c], a22 = a[b + 10 * c], a23 = a[b + 11 * c];
+                    long a30 = a[b + 12 * c], a31 = a[b + 13 * c], a32 = a[b + 14 * c], a33 = a[b + 15 * c];
+                    long s0 = a00 * a11 - a10 * a01, s1 = a00 * a12 - a10 * a02, s2 = a00 * a13 - a10 * a03;
+                    long s3 = a01 * a12 - a11 * a02, s4 = a01 * a13 - a11 * a03, s5 = a02 * a13 - a12 * a03;
+                    long c5 = a22 * a33 - a32 * a23, c4 = a21 * a33 - a31 * a23, c3 = a21 * a32 - a31 * a22;
+                    long c2 = a20 * a33 - a30 * a23, c1 = a20 * a32 - a30 * a22, c0 = a20 * a31 - a30 * a21;
+                    d[b] = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+                    mag[b] = mag(a00) | mag(a01) | mag(a02) | mag(a03) | mag(a10) | mag(a11) | mag(a12) | mag(a13)
+                            | mag(a20) | mag(a21) | mag(a22) | mag(a23) | mag(a30) | mag(a31) | mag(a32) | mag(a33);
+                }
+                break;
+        }
+    }
+
+    // adjugate into adj, determinant into d
+    private static void adjugate(int k, long[] a, long[] adj, long[] d, long[] mag, int c) {
+        switch (k) {
+            case 1:
+                for (int b = 0; b < c; b++) {
+                    adj[b] = 1;
+                    d[b] = a[b];
+                    mag[b] = mag(a[b]);
+                }
+                break;
+            case 2:
+                for (int b = 0; b < c; b++) {
+                    long a00 = a[b], a01 = a[b + c], a10 = a[b + 2 * c], a11 = a[b + 3 * c];
+                    adj[b] = a11;
+                    adj[b + c] = -a01;
+                    adj[b + 2 * c] = -a10;
+                    adj[b + 3 * c] = a00;
+                    d[b] = a00 * a11 - a01 * a10;
+                    mag[b] = mag(a00) | mag(a01) | mag(a10) | mag(a11);
+                }
+                break;
+            case 3:
+                for (int b = 0; b < c; b++) {
+                    long a00 = a[b], a01 = a[b + c], a02 = a[b + 2 * c];
+                    long a10 = a[b + 3 * c], a11 = a[b + 4 * c], a12 = a[b + 5 * c];
+                    long a20 = a[b + 6 * c], a21 = a[b + 7 * c], a22 = a[b + 8 * c];
+                    long b00 = a11 * a22 - a12 * a21;
+                    long b10 = a12 * a20 - a10 * a22;
+                    long b20 = a10 * a21 - a11 * a20;
+                    adj[b] = b00;
+                    adj[b + c] = a02 * a21 - a01 * a22;
+                    adj[b + 2 * c] = a01 * a12 - a02 * a11;
+                    adj[b + 3 * c] = b10;
+                    adj[b + 4 * c] = a00 * a22 - a02 * a20;
+                    adj[b + 5 * c] = a02 * a10 - a00 * a12;
+                    adj[b + 6 * c] = b20;
+                    adj[b + 7 * c] = a01 * a20 - a00 * a21;
+                    adj[b + 8 * c] = a00 * a11 - a01 * a10;
+                    d[b] = a00 * b00 + a01 * b10 + a02 * b20;
+                    mag[b] = mag(a00) | mag(a01) | mag(a02) | mag(a10) | mag(a11) | mag(a12)
+                            | mag(a20) | mag(a21) | mag(a22);
+                }
+                break;
+            default:
+                for (int b = 0; b < c; b++) {
+                    long a00 = a[b], a01 = a[b + c], a02 = a[b + 2 * c], a03 = a[b + 3 * c];
+                    long a10 = a[b + 4 * c], a11 = a[b + 5 * c], a12 = a[b + 6 * c], a13 = a[b + 7 * c];
+                    long a20 = a[b + 8 * c], a21 = a[b + 9 * c], a22 = a[b + 10 * c], a23 = a[b + 11 * c];
+                    long a30 = a[b + 12 * c], a31 = a[b + 13 * c], a32 = a[b + 14 * c], a33 = a[b + 15 * c];
+                    long s0 = a00 * a11 - a10 * a01, s1 = a00 * a12 - a10 * a02, s2 = a00 * a13 - a10 * a03;
+                    long s3 = a01 * a12 - a11 * a02, s4 = a01 * a13 - a11 * a03, s5 = a02 * a13 - a12 * a03;
+                    long c5 = a22 * a33 - a32 * a23, c4 = a21 * a33 - a31 * a23, c3 = a21 * a32 - a31 * a22;
+                    long c2 = a20 * a33 - a30 * a23, c1 = a20 * a32 - a30 * a22, c0 = a20 * a31 - a30 * a21;
+                    adj[b] = a11 * c5 - a12 * c4 + a13 * c3;
+                    adj[b + c] = -a01 * c5 + a02 * c4 - a03 * c3;
+                    adj[b + 2 * c] = a31 * s5 - a32 * s4 + a33 * s3;
+                    adj[b + 3 * c] = -a21 * s5 + a22 * s4 - a23 * s3;
+                    adj[b + 4 * c] = -a10 * c5 + a12 * c2 - a13 * c1;
+                    adj[b + 5 * c] = a00 * c5 - a02 * c2 + a03 * c1;
+                    adj[b + 6 * c] = -a30 * s5 + a32 * s2 - a33 * s1;
+                    adj[b + 7 * c] = a20 * s5 - a22 * s2 + a23 * s1;
+                    adj[b + 8 * c] = a10 * c4 - a11 * c2 + a13 * c0;
+                    adj[b + 9 * c] = -a00 * c4 + a01 * c2 - a03 * c0;
+                    adj[b + 10 * c] = a30 * s4 - a31 * s2 + a33 * s0;
+                    adj[b + 11 * c] = -a20 * s4 + a21 * s2 - a23 * s0;
+                    adj[b + 12 * c] = -a10 * c3 + a11 * c1 - a12 * c0;
+                    adj[b + 13 * c] = a00 * c3 - a01 * c1 + a02 * c0;
+                    adj[b + 14 * c] = -a30 * s3 + a31 * s1 - a32 * s0;
+                    adj[b + 15 * c] = a20 * s3 - a21 * s1 + a22 * s0;
+                    d[b] = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+                    mag[b] = mag(a00) | mag(a01) | mag(a02) | mag(a03) | mag(a10) | mag(a11) | mag(a12) | mag(a13)
+                            | mag(a20) | mag(a21) | mag(a22) | mag(a23) | mag(a30) | mag(a31) | mag(a32) | mag(a33);
+                }
+                break;
+        }
+    }
+
+    // Exact path, one matrix through RVec
+
+    private void fallbackDet(MatrixBatch out, int b) {
+        if (!defined(b)) {
+            out.markUndefined(b);
+            return;
+        }
+        out.put(b, toVec(b).det());
+    }
+
+    private void fallbackInv(MatrixBatch out, int b) {
+        if (!defined(b)) {
+            out.markUndefined(b);
+            return;
+        }
+        try {
+            out.putAll(b, toVec(b).inv());
+        } catch (ArithmeticException e) {
+            out.markUndefined(b);
+        }
+    }
+
+    private void fallbackSolve(MatrixBatch rhs, MatrixBatch out, int b) {
+        if (!defined(b) || !rhs.defined(b)) {
+            out.markUndefined(b);
+            return;
+        }
+        var a = toVec(b);
+        if (a.rank() < n) {
+            out.markUndefined(b);
+            return;
+        }
+        out.putAll(b, a.solve(rhs.toVec(b)));
+    }
+
+    // Storage
+
+    private int index(int b, int i, int j) {
+        return (i * n + j) * count + b;
+    }
+
+    private Fraction cell(int idx) {
+        if (wide != null && wide[idx] != null) {
+            return wide[idx];
+        }
+        return Fraction.of(num[idx], den[idx]);
+    }
+
+    private boolean hasWide(int b) {
+        for (int c = 0; c < m * n; c++) {
+            if (wide[c * count + b] != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void put(int idx, Fraction f) {
+        if (f.fitsLong()) {
+            num[idx] = f.getNum();
+            den[idx] = f.getDen();
+            return;
+        }
+        if (wide == null) {
+            wide = new Fraction[num.length];
+        }
+        wide[idx] = f;
+    }
+
+    // cells are kept with a positive denominator but not necessarily in
+    // lowest terms; cell() reduces them
+    private void put(int idx, long p, long q) {
+        if (q == 0) {
+            throw new ArithmeticException();
+        }
+        if (p == Long.MIN_VALUE || q == Long.MIN_VALUE) {
+            put(idx, Fraction.of(p, q));
+            return;
+        }
+        if (q < 0) {
+            p = -p;
+            q = -q;
+        }
+        num[idx] = p;
+        den[idx] = q;
+    }
+
+    private void putAll(int b, RVec rv) {
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                put(index(b, i, j), rv.get(i, j));
+            }
+        }
+    }
+
+    // undefined matrices read as zeros
+    private void markUndefined(int b) {
+        if (undefined == null) {
+            undefined = new long[(count + 63) >>> 6];
+        }
+        undefined[b >>> 6] |= 1L << b;
+        for (int c = 0; c < m * n; c++) {
+            num[c * count + b] = 0;
+            den[c * count + b] = 1;
+            if (wide != null) {
+                wide[c * count + b] = null;
+            }
+        }
+    }
+
+    private boolean defined(int b) {
+        return undefined == null || (undefined[b >>> 6] & (1L << b)) == 0;
+    }
+
+    // Batches do not change once returned, so this is computed once
+    private boolean isIntegral() {
+        if (integral == 0) {
+            long notOne = 0;
+            for (long d : den) {
+                notOne |= d ^ 1;
+            }
+            integral = notOne == 0 && wide == null ? 1 : -1;
+        }
+        return integral > 0;
+    }
+
+    private static long lcm(long a, long b) {
+        return Math.multiplyExact(a / Fraction.gcd(a, b), b);
+    }
+
+    private void checkIndex(int b) {
+        if (b < 0 || b >= count) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private void checkSquare() {
+        if (m != n) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MatrixBatch{" + count + " x [" + m + " Rows, " + n + " Columns]}";
+    }
+}
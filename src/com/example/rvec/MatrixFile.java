@@ -0,0 +1,557 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Binary matrix file, read through a read-only memory mapping.
+ * <p>
+ * All values are little-endian. The 24 byte header holds the magic
+ * "RVEC", a version byte, the layout and encoding bytes, a reserved byte,
+ * then m and n as ints and the number of stored cells as a long. A DENSE
+ * body is m * n cells in row-major order. A SPARSE body is CSR: m + 1 int
+ * row pointers, one int column index per stored cell, then the cells.
+ * <p>
+ * FIXED32 and FIXED64 store each cell as a num/den pair of ints or longs,
+ * so any cell can be read in place straight from the mapping. VARINT
+ * stores a zigzag LEB128 numerator and a LEB128 denominator; a cell too
+ * wide for longs is written as num 0, den 0, then the two's-complement bytes
+ * of num and den, each prefixed by its length. VARINT files are smaller
+ * but only sequential, so open() walks the body once, checking every
+ * cell and indexing the byte offset of each row for random access.
+ * Fixed cells are only checked as they are read: a zero or negative
+ * denominator surfaces as an UncheckedIOException.
+ * <p>
+ * A mapping is limited to 2 GB and is released when the MatrixFile is
+ * garbage collected.
+ */
+@SuppressWarnings("unused")
+public class MatrixFile {
+    public enum Layout {DENSE, SPARSE}
+
+    public enum Encoding {FIXED32, FIXED64, VARINT}
+
+    private static final int MAGIC = 0x43455652;
+    private static final byte VERSION = 1;
+    private static final int HEADER = 24;
+
+    private final ByteBuffer buf;
+    private final Layout layout;
+    private final Encoding encoding;
+    private final int m;
+    private final int n;
+    private final int stored;
+    private final int ptrOffset;
+    private final int idxOffset;
+    private final int cellOffset;
+    // VARINT only: byte offset of the first cell of each row
+    private final int[] rowOffsets;
+
+    private MatrixFile(ByteBuffer buf) throws IOException {
+        this.buf = buf.order(ByteOrder.LITTLE_ENDIAN);
+        if (buf.limit() < HEADER || buf.getInt(0) != MAGIC) {
+            throw new IOException("not an RVec matrix file");
+        }
+        if (buf.get(4) != VERSION) {
+            throw new IOException("unsupported matrix file version " + buf.get(4));
+        }
+        var l = buf.get(5);
+        var e = buf.get(6);
+        m = buf.getInt(8);
+        n = buf.getInt(12);
+        var count = buf.getLong(16);
+        if (l < 0 || l >= Layout.values().length || e < 0 || e >= Encoding.values().length
+                || m < 1 || n < 1 || count < 0 || count > (long) m * n
+                || count > Integer.MAX_VALUE) {
+            throw new IOException("corrupt matrix file header");
+        }
+        layout = Layout.values()[l];
+        encoding = Encoding.values()[e];
+        if (layout == Layout.DENSE && count != (long) m * n) {
+            throw new IOException("corrupt matrix file header");
+        }
+        stored = (int) count;
+        // in longs until the length check, as a hostile header can
+        // overflow ints
+        var sparse = layout == Layout.SPARSE;
+        var idx = HEADER + 4L * (m + 1);
+        var cells = sparse ? idx + 4L * stored : HEADER;
+        if (cells + (long) stored * cellWidth(encoding) > buf.limit()) {
+            throw new IOException("truncated matrix file");
+        }
+        ptrOffset = sparse ? HEADER : -1;
+        idxOffset = sparse ? (int) idx : -1;
+        cellOffset = (int) cells;
+        if (sparse) {
+            checkStructure();
+        }
+        rowOffsets = encoding == Encoding.VARINT ? indexVarRows() : null;
+    }
+
+    // Row pointers from 0 to stored, never decreasing, and column indices
+    // in [0, n) increasing within each row, so that get() and toVec() need
+    // no bounds checks of their own
+    private void checkStructure() throws IOException {
+        if (buf.getInt(ptrOffset) != 0 || buf.getInt(ptrOffset + 4 * m) != stored) {
+            throw new IOException("corrupt sparse row pointers");
+        }
+        int prev = 0;
+        for (int i = 0; i < m; i++) {
+            var end = buf.getInt(ptrOffset + 4 * (i + 1));
+            if (end < prev || end > stored) {
+                throw new IOException("corrupt sparse row pointers");
+            }
+            int last = -1;
+            for (int p = prev; p < end; p++) {
+                var c = buf.getInt(idxOffset + 4 * p);
+                if (c <= last || c >= n) {
+                    throw new IOException("corrupt sparse column index " + c + " in row " + i);
+                }
+                last = c;
+            }
+            prev = end;
+        }
+    }
+
+    // maps the file without reading the cells
+    public static MatrixFile open(Path path) throws IOException {
+        try (var ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            var size = ch.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("matrix file larger than 2 GB");
+            }
+            return new MatrixFile(ch.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    public int getRows() {
+        return m;
+    }
+
+    public int getCols() {
+        return n;
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    // number of cells in the file, m * n for DENSE
+    public int getStored() {
+        return stored;
+    }
+
+    public Fraction get(int i, int j) {
+        if (i < 0 || i >= m || j < 0 || j >= n) {
+            throw new IndexOutOfBoundsException();
+        }
+        int p;
+        if (layout == Layout.DENSE) {
+            p = i * n + j;
+        } else {
+            p = findInRow(i, j);
+            if (p < 0) {
+                return Fraction.ZERO;
+            }
+        }
+        if (encoding == Encoding.VARINT) {
+            var first = layout == Layout.DENSE ? i * n : buf.getInt(ptrOffset + 4 * i);
+            var at = new int[]{rowOffsets[i]};
+            for (int s = first; s < p; s++) {
+                skipVarCell(at);
+            }
+            return readVarCell(at);
+        }
+        return readFixed(cellOffset + p * cellWidth(encoding));
+    }
+
+    // index of the stored cell (i, j), or -1
+    private int findInRow(int i, int j) {
+        int lo = buf.getInt(ptrOffset + 4 * i);
+        int hi = buf.getInt(ptrOffset + 4 * (i + 1)) - 1;
+        while (lo <= hi) {
+            var mid = (lo + hi) >>> 1;
+            var c = buf.getInt(idxOffset + 4 * mid);
+            if (c < j) {
+                lo = mid + 1;
+            } else if (c > j) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public RVec toVec() {
+        var ma = new Fraction[m][n];
+        var at = new int[]{cellOffset};
+        if (layout == Layout.DENSE) {
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < n; j++) {
+                    ma[i][j] = nextCell(at);
+                }
+            }
+        } else {
+            for (int i = 0; i < m; i++) {
+                Arrays.fill(ma[i], Fraction.ZERO);
+                var end = buf.getInt(ptrOffset + 4 * (i + 1));
+                for (int p = buf.getInt(ptrOffset + 4 * i); p < end; p++) {
+                    ma[i][buf.getInt(idxOffset + 4 * p)] = nextCell(at);
+                }
+            }
+        }
+        return new RVec(m, n, ma);
+    }
+
+    public SparseRVec toSparse() {
+        if (layout == Layout.DENSE) {
+            return toVec().toSparse();
+        }
+        var rowPtr = new int[m + 1];
+        var colIdx = new int[stored];
+        var vals = new Fraction[stored];
+        buf.duplicate().order(ByteOrder.LITTLE_ENDIAN).position(ptrOffset)
+                .asIntBuffer().get(rowPtr);
+        buf.duplicate().order(ByteOrder.LITTLE_ENDIAN).position(idxOffset)
+                .asIntBuffer().get(colIdx);
+        var at = new int[]{cellOffset};
+        for (int p = 0; p < stored; p++) {
+            vals[p] = nextCell(at);
+        }
+        return new SparseRVec(m, n, rowPtr, colIdx, vals);
+    }
+
+    // reads cells from the mapping on demand, for dot, det and friends
+    public LazyRVec lazy() {
+        return LazyRVec.of(m, n, this::get);
+    }
+
+    private Fraction nextCell(int[] at) {
+        if (encoding == Encoding.VARINT) {
+            return readVarCell(at);
+        }
+        var f = readFixed(at[0]);
+        at[0] += cellWidth(encoding);
+        return f;
+    }
+
+    private Fraction readFixed(int offset) {
+        long num;
+        long den;
+        if (encoding == Encoding.FIXED32) {
+            num = buf.getInt(offset);
+            den = buf.getInt(offset + 4);
+        } else {
+            num = buf.getLong(offset);
+            den = buf.getLong(offset + 8);
+        }
+        if (den <= 0) {
+            throw new UncheckedIOException(new IOException(
+                    "corrupt matrix file: denominator " + den + " in cell at byte " + offset));
+        }
+        return Fraction.of(num, den);
+    }
+
+    private Fraction readVarCell(int[] at) {
+        var num = unzigzag(readVarLong(at));
+        var den = readVarLong(at);
+        if (den != 0) {
+            return Fraction.of(num, den);
+        }
+        var bn = readBytes(at);
+        var bd = readBytes(at);
+        return Fraction.of(new BigInteger(bn), new BigInteger(bd));
+    }
+
+    private void skipVarCell(int[] at) {
+        readVarLong(at);
+        if (readVarLong(at) == 0) {
+            readBytes(at);
+            readBytes(at);
+        }
+    }
+
+    private long readVarLong(int[] at) {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            var b = buf.get(at[0]++);
+            v |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return v;
+            }
+        }
+    }
+
+    private byte[] readBytes(int[] at) {
+        var len = (int) readVarLong(at);
+        var bytes = new byte[len];
+        buf.duplicate().position(at[0]).get(bytes);
+        at[0] += len;
+        return bytes;
+    }
+
+    // Walks the VARINT body once, so that a cell running past the mapping,
+    // a varint too wide for a long or a non-positive denominator fails at
+    // open rather than in get() or toVec()
+    private int[] indexVarRows() throws IOException {
+        var offs = new int[m];
+        var at = new int[]{cellOffset};
+        for (int i = 0; i < m; i++) {
+            offs[i] = at[0];
+            var count = layout == Layout.DENSE ? n
+                    : buf.getInt(ptrOffset + 4 * (i + 1)) - buf.getInt(ptrOffset + 4 * i);
+            for (int s = 0; s < count; s++) {
+                checkVarCell(at);
+            }
+        }
+        if (at[0] != buf.limit()) {
+            throw new IOException("corrupt matrix file: " + (buf.limit() - at[0])
+                    + " bytes after the last cell");
+        }
+        return offs;
+    }
+
+    private void checkVarCell(int[] at) throws IOException {
+        var start = at[0];
+        var num = checkedVarLong(at);
+        var den = checkedVarLong(at);
+        if (den > 0) {
+            return;
+        }
+        if (den < 0 || num != 0) {
+            throw new IOException("corrupt matrix file: bad denominator in cell at byte " + start);
+        }
+        checkedBytes(at);
+        var bd = checkedBytes(at);
+        if (new BigInteger(bd).signum() <= 0) {
+            throw new IOException("corrupt matrix file: bad denominator in cell at byte " + start);
+        }
+    }
+
+    private long checkedVarLong(int[] at) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (at[0] >= buf.limit()) {
+                throw new IOException("truncated matrix file");
+            }
+            var b = buf.get(at[0]++);
+            // the tenth byte holds only bit 63
+            if (shift == 63 && (b & 0xff) > 1) {
+                break;
+            }
+            v |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return v;
+            }
+        }
+        throw new IOException("corrupt matrix file: varint at byte " + at[0] + " overflows a long");
+    }
+
+    private byte[] checkedBytes(int[] at) throws IOException {
+        var len = checkedVarLong(at);
+        if (len < 1 || len > buf.limit() - at[0]) {
+            throw new IOException("corrupt matrix file: bad length " + len + " at byte " + at[0]);
+        }
+        var bytes = new byte[(int) len];
+        buf.duplicate().position(at[0]).get(bytes);
+        at[0] += (int) len;
+        return bytes;
+    }
+
+    // bytes per cell; for VARINT the smallest possible cell
+    private static int cellWidth(Encoding e) {
+        switch (e) {
+            case FIXED32:
+                return 8;
+            case FIXED64:
+                return 16;
+            default:
+                return 2;
+        }
+    }
+
+    private static long unzigzag(long z) {
+        return (z >>> 1) ^ -(z & 1);
+    }
+
+    // Writing
+
+    // picks the smaller layout and the narrowest fixed encoding that fits,
+    // VARINT if some cell is too wide for longs
+    public static void write(RVec rv, Path path) throws IOException {
+        var sv = rv.toSparse();
+        var e = narrowest(rv);
+        long cells = (long) rv.getRows() * rv.getCols();
+        var w = cellWidth(e);
+        var layout = 4L * (rv.getRows() + 1) + (4L + w) * sv.nnz() < w * cells
+                ? Layout.SPARSE : Layout.DENSE;
+        if (layout == Layout.SPARSE) {
+            write(sv, path, e);
+        } else {
+            write(rv, path, e);
+        }
+    }
+
+    public static void write(RVec rv, Path path, Layout layout, Encoding encoding) throws IOException {
+        if (layout == Layout.SPARSE) {
+            write(rv.toSparse(), path, encoding);
+        } else {
+            write(rv, path, encoding);
+        }
+    }
+
+    private static void write(RVec rv, Path path, Encoding encoding) throws IOException {
+        var m = rv.getRows();
+        var n = rv.getCols();
+        try (var out = new Out(path)) {
+            out.header(Layout.DENSE, encoding, m, n, (long) m * n);
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < n; j++) {
+                    out.cell(encoding, rv.get(i, j));
+                }
+            }
+        }
+    }
+
+    public static void write(SparseRVec sv, Path path, Encoding encoding) throws IOException {
+        var m = sv.getRows();
+        try (var out = new Out(path)) {
+            out.header(Layout.SPARSE, encoding, m, sv.getCols(), sv.nnz());
+            for (int i = 0; i <= m; i++) {
+                out.putInt(i < m ? sv.rowStart(i) : sv.nnz());
+            }
+            for (int p = 0; p < sv.nnz(); p++) {
+                out.putInt(sv.col(p));
+            }
+            for (int p = 0; p < sv.nnz(); p++) {
+                out.cell(encoding, sv.val(p));
+            }
+        }
+    }
+
+    private static Encoding narrowest(RVec rv) {
+        var e = Encoding.FIXED32;
+        for (int i = 0; i < rv.getRows(); i++) {
+            for (int j = 0; j < rv.getCols(); j++) {
+                var f = rv.get(i, j);
+                if (!f.fitsLong()) {
+                    return Encoding.VARINT;
+                }
+                if (f.getNum() != (int) f.getNum() || f.getDen() != (int) f.getDen()) {
+                    e = Encoding.FIXED64;
+                }
+            }
+        }
+        return e;
+    }
+
+    // buffered little-endian writer over a file channel
+    private static final class Out implements AutoCloseable {
+        private final FileChannel ch;
+        private final ByteBuffer b = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        Out(Path path) throws IOException {
+            ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void header(Layout layout, Encoding encoding, int m, int n, long stored) throws IOException {
+            ensure(HEADER);
+            b.putInt(MAGIC).put(VERSION).put((byte) layout.ordinal())
+                    .put((byte) encoding.ordinal()).put((byte) 0)
+                    .putInt(m).putInt(n).putLong(stored);
+        }
+
+        void putInt(int v) throws IOException {
+            ensure(4);
+            b.putInt(v);
+        }
+
+        void cell(Encoding encoding, Fraction f) throws IOException {
+            switch (encoding) {
+                case FIXED32:
+                    if (!f.fitsLong() || f.getNum() != (int) f.getNum()
+                            || f.getDen() != (int) f.getDen()) {
+                        throw new IllegalArgumentException(f + " does not fit FIXED32");
+                    }
+                    ensure(8);
+                    b.putInt((int) f.getNum()).putInt((int) f.getDen());
+                    break;
+                case FIXED64:
+                    if (!f.fitsLong()) {
+                        throw new IllegalArgumentException(f + " does not fit FIXED64");
+                    }
+                    ensure(16);
+                    b.putLong(f.getNum()).putLong(f.getDen());
+                    break;
+                default:
+                    if (f.fitsLong()) {
+                        var num = f.getNum();
+                        varLong((num << 1) ^ (num >> 63));
+                        varLong(f.getDen());
+                    } else {
+                        varLong(0);
+                        varLong(0);
+                        bytes(f.getBigNum().toByteArray());
+                        bytes(f.getBigDen().toByteArray());
+                    }
+            }
+        }
+
+        private void varLong(long v) throws IOException {
+            ensure(10);
+            while ((v & ~0x7fL) != 0) {
+                b.put((byte) ((v & 0x7f) | 0x80));
+                v >>>= 7;
+            }
+            b.put((byte) v);
+        }
+
+        private void bytes(byte[] a) throws IOException {
+            varLong(a.length);
+            for (int off = 0; off < a.length; ) {
+                ensure(1);
+                var len = Math.min(b.remaining(), a.length - off);
+                b.put(a, off, len);
+                off += len;
+            }
+        }
+
+        private void ensure(int k) throws IOException {
+            if (b.remaining() < k) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            b.flip();
+            while (b.hasRemaining()) {
+                ch.write(b);
+            }
+            b.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                ch.close();
+            }
+        }
+    }
+}
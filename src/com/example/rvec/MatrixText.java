@@ -0,0 +1,597 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Streaming text input and output of rational matrices.
+ * <p>
+ * The reader takes delimited text (cells separated by commas, semicolons
+ * or blanks, one row per line) or MatrixMarket, detected from the first
+ * line. Cells are literals such as 5, -3/7, 1.25 or 2e-3, all converted
+ * exactly. Input is consumed in fixed-size chunks and parsed character
+ * by character, so no String is created per line or per cell. Lines starting
+ * with '#' or '%', and the "[m Rows, n Columns]" header that write()
+ * emits, are skipped. Errors are reported as IOExceptions with a line
+ * number.
+ * <p>
+ * The writers stream to any Appendable, one row at a time. write() matches
+ * RVec.toString; its column widths come from a pre-pass that measures
+ * every cell without formatting it, so it only needs one int per column.
+ */
+@SuppressWarnings("unused")
+public class MatrixText {
+    private MatrixText() {
+    }
+
+    public static RVec read(Path path) throws IOException {
+        try (var in = new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8)) {
+            return read(in);
+        }
+    }
+
+    public static RVec read(Reader in) throws IOException {
+        var lex = new Lexer(in);
+        if (lex.startsWith("%%MatrixMarket")) {
+            return readMatrixMarket(lex).toVec();
+        }
+        return readDelimited(lex);
+    }
+
+    // MatrixMarket coordinate input goes to CSR without a dense matrix
+    public static SparseRVec readSparse(Reader in) throws IOException {
+        var lex = new Lexer(in);
+        if (lex.startsWith("%%MatrixMarket")) {
+            return readMatrixMarket(lex);
+        }
+        return readDelimited(lex).toSparse();
+    }
+
+    private static RVec readDelimited(Lexer lex) throws IOException {
+        var rows = new ArrayList<Fraction[]>();
+        int n = -1;
+        var row = new Fraction[16];
+        while (true) {
+            lex.skipBlanks();
+            var c = lex.peek();
+            if (c == -1) {
+                break;
+            }
+            if (c == '\n') {
+                lex.next();
+                continue;
+            }
+            if (c == '#' || c == '%' || c == '[') {
+                lex.skipLine();
+                continue;
+            }
+            int count = 0;
+            while (true) {
+                if (count == row.length) {
+                    row = Arrays.copyOf(row, count * 2);
+                }
+                row[count++] = lex.number();
+                // a cell ends at a blank, a delimiter or the end of the line
+                c = lex.peek();
+                if (c != ' ' && c != '\t' && c != '\r' && c != ',' && c != ';'
+                        && c != '\n' && c != -1) {
+                    throw lex.error("unexpected '" + (char) c + "' after number");
+                }
+                lex.skipBlanks();
+                c = lex.peek();
+                if (c == ',' || c == ';') {
+                    lex.next();
+                    lex.skipBlanks();
+                } else if (c == '\n' || c == -1) {
+                    break;
+                }
+            }
+            if (n == -1) {
+                n = count;
+            } else if (count != n) {
+                throw lex.error("row has " + count + " columns, expected " + n);
+            }
+            rows.add(Arrays.copyOf(row, n));
+        }
+        if (rows.isEmpty()) {
+            throw lex.error("no rows");
+        }
+        return new RVec(rows.size(), n, rows.toArray(new Fraction[0][]));
+    }
+
+    // Entries of a MatrixMarket file in CSR order, duplicates summed
+    private static SparseRVec readMatrixMarket(Lexer lex) throws IOException {
+        lex.word();
+        var object = lex.word().toLowerCase(Locale.ROOT);
+        var format = lex.word().toLowerCase(Locale.ROOT);
+        var field = lex.word().toLowerCase(Locale.ROOT);
+        var symmetry = lex.word().toLowerCase(Locale.ROOT);
+        if (!object.equals("matrix")
+                || !(format.equals("coordinate") || format.equals("array"))
+                || !(field.equals("integer") || field.equals("real")
+                || field.equals("rational") || field.equals("pattern"))
+                || !(symmetry.equals("general") || symmetry.equals("symmetric")
+                || symmetry.equals("skew-symmetric"))) {
+            throw lex.error("unsupported MatrixMarket header");
+        }
+        var pattern = field.equals("pattern");
+        if (pattern && format.equals("array")) {
+            throw lex.error("pattern field requires coordinate format");
+        }
+        lex.endLine();
+        while (true) {
+            lex.skipBlanks();
+            var c = lex.peek();
+            if (c == '%' || c == '\n') {
+                lex.skipLine();
+            } else {
+                break;
+            }
+        }
+
+        var m = lex.index(Integer.MAX_VALUE);
+        var n = lex.index(Integer.MAX_VALUE);
+        var coordinate = format.equals("coordinate");
+        var entries = coordinate ? lex.count() : -1;
+        lex.endLine();
+
+        var symmetric = !symmetry.equals("general");
+        var skew = symmetry.equals("skew-symmetric");
+        // the declared count only sizes the first allocation, within reason
+        var t = new Triplets(coordinate ? Math.min(entries, 1 << 20) : 16);
+        if (coordinate) {
+            for (int k = 0; k < entries; k++) {
+                var i = lex.index(m) - 1;
+                var j = lex.index(n) - 1;
+                var v = pattern ? Fraction.ONE : lex.number();
+                lex.endLine();
+                t.add(i, j, v, symmetric, skew);
+            }
+        } else {
+            // column-major; only the lower triangle when symmetric
+            for (int j = 0; j < n; j++) {
+                for (int i = symmetric ? j : 0; i < m; i++) {
+                    if (skew && i == j) {
+                        continue;
+                    }
+                    var v = lex.number();
+                    lex.endLine();
+                    t.add(i, j, v, symmetric, skew);
+                }
+            }
+        }
+        return t.toSparse(m, n);
+    }
+
+    // coordinate entries, gathered before the CSR pass
+    private static final class Triplets {
+        int size;
+        int[] rows;
+        int[] cols;
+        Fraction[] vals;
+
+        Triplets(int capacity) {
+            capacity = Math.max(capacity, 16);
+            rows = new int[capacity];
+            cols = new int[capacity];
+            vals = new Fraction[capacity];
+        }
+
+        void add(int i, int j, Fraction v, boolean symmetric, boolean skew) {
+            if (v.isZero()) {
+                return;
+            }
+            push(i, j, v);
+            if (symmetric && i != j) {
+                push(j, i, skew ? v.neg() : v);
+            }
+        }
+
+        private void push(int i, int j, Fraction v) {
+            if (size == rows.length) {
+                var cap = size * 2;
+                rows = Arrays.copyOf(rows, cap);
+                cols = Arrays.copyOf(cols, cap);
+                vals = Arrays.copyOf(vals, cap);
+            }
+            rows[size] = i;
+            cols[size] = j;
+            vals[size] = v;
+            size++;
+        }
+
+        SparseRVec toSparse(int m, int n) {
+            // counting sort by row, then sort and merge each row by column
+            var ptr = new int[m + 1];
+            for (int k = 0; k < size; k++) {
+                ptr[rows[k] + 1]++;
+            }
+            for (int i = 0; i < m; i++) {
+                ptr[i + 1] += ptr[i];
+            }
+            var next = Arrays.copyOf(ptr, m);
+            var order = new int[size];
+            for (int k = 0; k < size; k++) {
+                order[next[rows[k]]++] = k;
+            }
+
+            var outPtr = new int[m + 1];
+            var idx = new int[size];
+            var vs = new Fraction[size];
+            int q = 0;
+            var byCol = new long[0];
+            for (int i = 0; i < m; i++) {
+                var len = ptr[i + 1] - ptr[i];
+                if (byCol.length < len) {
+                    byCol = new long[Math.max(len, byCol.length * 2)];
+                }
+                for (int s = 0; s < len; s++) {
+                    var k = order[ptr[i] + s];
+                    byCol[s] = ((long) cols[k] << 32) | k;
+                }
+                Arrays.sort(byCol, 0, len);
+                for (int s = 0; s < len; s++) {
+                    var c = (int) (byCol[s] >>> 32);
+                    var v = vals[(int) byCol[s]];
+                    if (q > outPtr[i] && idx[q - 1] == c) {
+                        vs[q - 1] = vs[q - 1].add(v);
+                    } else {
+                        idx[q] = c;
+                        vs[q] = v;
+                        q++;
+                    }
+                }
+                // duplicates can cancel out
+                int w = outPtr[i];
+                for (int p = outPtr[i]; p < q; p++) {
+                    if (!vs[p].isZero()) {
+                        idx[w] = idx[p];
+                        vs[w] = vs[p];
+                        w++;
+                    }
+                }
+                q = w;
+                outPtr[i + 1] = q;
+            }
+            return new SparseRVec(m, n, outPtr, Arrays.copyOf(idx, q), Arrays.copyOf(vs, q));
+        }
+    }
+
+    // Writing
+
+    // same layout as RVec.toString
+    public static void write(RVec rv, Appendable out) throws IOException {
+        var m = rv.getRows();
+        var n = rv.getCols();
+        var cols = new int[n];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                cols[j] = Math.max(cols[j], width(rv.get(i, j)));
+            }
+        }
+
+        out.append('[').append(Integer.toString(m)).append(" Rows, ")
+                .append(Integer.toString(n)).append(" Columns]\n");
+        var sb = new StringBuilder();
+        for (int i = 0; i < m; i++) {
+            sb.setLength(0);
+            for (int j = 0; j < n; j++) {
+                var f = rv.get(i, j);
+                for (int pad = cols[j] - width(f); pad > 0; pad--) {
+                    sb.append(' ');
+                }
+                appendCell(sb, f);
+                if (j != n - 1) {
+                    sb.append("    ");
+                }
+            }
+            sb.append('\n');
+            out.append(sb);
+        }
+    }
+
+    public static void writeDelimited(RVec rv, Appendable out, char separator) throws IOException {
+        var sb = new StringBuilder();
+        for (int i = 0; i < rv.getRows(); i++) {
+            sb.setLength(0);
+            for (int j = 0; j < rv.getCols(); j++) {
+                if (j != 0) {
+                    sb.append(separator);
+                }
+                appendCell(sb, rv.get(i, j));
+            }
+            sb.append('\n');
+            out.append(sb);
+        }
+    }
+
+    // coordinate format; the field is "rational" unless every entry is an
+    // integer, which other MatrixMarket readers may not accept
+    public static void writeMatrixMarket(SparseRVec sv, Appendable out) throws IOException {
+        boolean integral = true;
+        for (int p = 0; p < sv.nnz() && integral; p++) {
+            integral = sv.val(p).isInteger();
+        }
+        out.append("%%MatrixMarket matrix coordinate ")
+                .append(integral ? "integer" : "rational").append(" general\n");
+        out.append(Integer.toString(sv.getRows())).append(' ')
+                .append(Integer.toString(sv.getCols())).append(' ')
+                .append(Integer.toString(sv.nnz())).append('\n');
+        var sb = new StringBuilder();
+        for (int i = 0; i < sv.getRows(); i++) {
+            for (int p = sv.rowStart(i); p < sv.rowEnd(i); p++) {
+                sb.setLength(0);
+                sb.append(i + 1).append(' ').append(sv.col(p) + 1).append(' ');
+                appendCell(sb, sv.val(p));
+                sb.append('\n');
+                out.append(sb);
+            }
+        }
+    }
+
+    // Fraction.toString, without the intermediate String
+    private static void appendCell(StringBuilder sb, Fraction f) {
+        if (!f.fitsLong()) {
+            sb.append(f);
+            return;
+        }
+        sb.append(f.getNum());
+        if (f.getDen() != 1) {
+            sb.append('/').append(f.getDen());
+        }
+    }
+
+    // length of Fraction.toString
+    private static int width(Fraction f) {
+        if (!f.fitsLong()) {
+            return f.toString().length();
+        }
+        var w = digits(f.getNum());
+        return f.getDen() == 1 ? w : w + 1 + digits(f.getDen());
+    }
+
+    private static int digits(long v) {
+        int d = v < 0 ? 2 : 1;
+        v = Math.abs(v);
+        while (v >= 10) {
+            v /= 10;
+            d++;
+        }
+        return d;
+    }
+
+    // Character-level reader over fixed-size chunks
+    private static final class Lexer {
+        private static final int MAX_EXPONENT = 100_000;
+        private static final long[] POW10 = new long[19];
+
+        static {
+            POW10[0] = 1;
+            for (int k = 1; k < POW10.length; k++) {
+                POW10[k] = POW10[k - 1] * 10;
+            }
+        }
+
+        private final Reader in;
+        private final char[] buf = new char[1 << 16];
+        private int pos;
+        private int lim;
+        private int line = 1;
+
+        // digit accumulator, switching to BigInteger on overflow
+        private long acc;
+        private BigInteger bigAcc;
+
+        Lexer(Reader in) {
+            this.in = in;
+        }
+
+        int peek() throws IOException {
+            if (pos == lim) {
+                lim = in.read(buf, 0, buf.length);
+                pos = 0;
+                if (lim <= 0) {
+                    lim = 0;
+                    return -1;
+                }
+            }
+            return buf[pos];
+        }
+
+        int next() throws IOException {
+            var c = peek();
+            if (c != -1) {
+                pos++;
+                if (c == '\n') {
+                    line++;
+                }
+            }
+            return c;
+        }
+
+        boolean startsWith(String s) throws IOException {
+            // only called at the start, so the prefix fits in the buffer
+            peek();
+            while (lim - pos < s.length()) {
+                var extra = in.read(buf, lim, buf.length - lim);
+                if (extra <= 0) {
+                    break;
+                }
+                lim += extra;
+            }
+            if (lim - pos < s.length()) {
+                return false;
+            }
+            for (int k = 0; k < s.length(); k++) {
+                if (buf[pos + k] != s.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void skipBlanks() throws IOException {
+            int c;
+            while ((c = peek()) == ' ' || c == '\t' || c == '\r') {
+                pos++;
+            }
+        }
+
+        // the rest of the line may only be blanks and a % comment
+        void endLine() throws IOException {
+            skipBlanks();
+            var c = peek();
+            if (c == '%' || c == '\n') {
+                skipLine();
+            } else if (c != -1) {
+                throw error("unexpected '" + (char) c + "' before end of line");
+            }
+        }
+
+        void skipLine() throws IOException {
+            int c;
+            while ((c = next()) != -1 && c != '\n') {
+                // skip
+            }
+        }
+
+        // whitespace-delimited token on the current line
+        String word() throws IOException {
+            skipBlanks();
+            var sb = new StringBuilder();
+            int c;
+            while ((c = peek()) != -1 && c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                sb.append((char) c);
+                pos++;
+            }
+            if (sb.length() == 0) {
+                throw error("expected a word");
+            }
+            return sb.toString();
+        }
+
+        // a positive integer no larger than max
+        int index(int max) throws IOException {
+            skipBlanks();
+            if (digits() == 0 || bigAcc != null || acc < 1 || acc > max) {
+                throw error("expected an index between 1 and " + max);
+            }
+            return (int) acc;
+        }
+
+        int count() throws IOException {
+            skipBlanks();
+            if (digits() == 0 || bigAcc != null || acc > Integer.MAX_VALUE) {
+                throw error("expected a count");
+            }
+            return (int) acc;
+        }
+
+        Fraction number() throws IOException {
+            skipBlanks();
+            var negative = sign();
+            var intDigits = digits();
+            var c = peek();
+            if (c == '/') {
+                if (intDigits == 0) {
+                    throw error("expected a number");
+                }
+                pos++;
+                var num = acc;
+                var bigNum = bigAcc;
+                negative ^= sign();
+                if (digits() == 0) {
+                    throw error("expected a denominator");
+                }
+                if (bigAcc == null && acc == 0) {
+                    throw error("zero denominator");
+                }
+                if (bigNum == null && bigAcc == null) {
+                    return Fraction.of(negative ? -num : num, acc);
+                }
+                var n = bigNum != null ? bigNum : BigInteger.valueOf(num);
+                var d = bigAcc != null ? bigAcc : BigInteger.valueOf(acc);
+                return Fraction.of(negative ? n.negate() : n, d);
+            }
+
+            // decimal: the fraction digits extend the integer part
+            int scale = 0;
+            if (c == '.') {
+                pos++;
+                scale = -more();
+            }
+            if (intDigits == 0 && scale == 0) {
+                throw error("expected a number");
+            }
+            var mant = acc;
+            var bigMant = bigAcc;
+            c = peek();
+            if (c == 'e' || c == 'E') {
+                pos++;
+                var expNegative = sign();
+                if (digits() == 0 || bigAcc != null || acc > MAX_EXPONENT) {
+                    throw error("bad exponent");
+                }
+                scale += expNegative ? -(int) acc : (int) acc;
+            }
+            if (bigMant == null && scale <= 0 && scale >= -18) {
+                return Fraction.of(negative ? -mant : mant, POW10[-scale]);
+            }
+            var num = bigMant != null ? bigMant : BigInteger.valueOf(mant);
+            if (negative) {
+                num = num.negate();
+            }
+            var pow = BigInteger.TEN.pow(Math.abs(scale));
+            return scale > 0 ? Fraction.of(num.multiply(pow), BigInteger.ONE) : Fraction.of(num, pow);
+        }
+
+        private boolean sign() throws IOException {
+            var c = peek();
+            if (c == '-' || c == '+') {
+                pos++;
+                return c == '-';
+            }
+            return false;
+        }
+
+        // reads digits into a fresh accumulator
+        private int digits() throws IOException {
+            acc = 0;
+            bigAcc = null;
+            return more();
+        }
+
+        private int more() throws IOException {
+            int k = 0;
+            int c;
+            while ((c = peek()) >= '0' && c <= '9') {
+                var d = c - '0';
+                pos++;
+                k++;
+                if (bigAcc == null) {
+                    if (acc <= (Long.MAX_VALUE - d) / 10) {
+                        acc = acc * 10 + d;
+                        continue;
+                    }
+                    bigAcc = BigInteger.valueOf(acc);
+                }
+                bigAcc = bigAcc.multiply(BigInteger.TEN).add(BigInteger.valueOf(d));
+            }
+            return k;
+        }
+
+        IOException error(String message) {
+            return new IOException("line " + line + ": " + message);
+        }
+    }
+}
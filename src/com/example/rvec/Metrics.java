@@ -0,0 +1,138 @@
+package com.example.rvec;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters for the arithmetic and elimination engines.
+ * <p>
+ * Counters are LongAdders, so updates from concurrent eliminations do not
+ * contend, and they are only read when a snapshot is taken. Row operation,
+ * elimination and promotion counters are always on. The gcd and interning
+ * counters sit on every Fraction operation, where even an uncontended
+ * increment is measurable, so they are only maintained when the JVM runs
+ * with -Drvec.metrics.arithmetic=true.
+ */
+public final class Metrics {
+    static final boolean ARITHMETIC = Boolean.getBoolean("rvec.metrics.arithmetic");
+
+    static final LongAdder EXCHANGES = new LongAdder();
+    static final LongAdder ROW_MULS = new LongAdder();
+    static final LongAdder LINEAR_COMBINATIONS = new LongAdder();
+    static final LongAdder GCD_CALLS = new LongAdder();
+    static final LongAdder PROMOTIONS = new LongAdder();
+    static final LongAdder INTERN_HITS = new LongAdder();
+    static final LongAdder ELIMINATIONS = new LongAdder();
+    static final LongAdder GAUSS_NANOS = new LongAdder();
+    static final LongAdder JORDAN_NANOS = new LongAdder();
+    static final LongAdder CERTIFIED = new LongAdder();
+    static final LongAdder CERTIFY_FALLBACKS = new LongAdder();
+
+    private Metrics() {
+    }
+
+    public static Snapshot snapshot() {
+        return new Snapshot();
+    }
+
+    public static void reset() {
+        EXCHANGES.reset();
+        ROW_MULS.reset();
+        LINEAR_COMBINATIONS.reset();
+        GCD_CALLS.reset();
+        PROMOTIONS.reset();
+        INTERN_HITS.reset();
+        ELIMINATIONS.reset();
+        GAUSS_NANOS.reset();
+        JORDAN_NANOS.reset();
+        CERTIFIED.reset();
+        CERTIFY_FALLBACKS.reset();
+    }
+
+    public static class Snapshot {
+        private final long exchanges = EXCHANGES.sum();
+        private final long rowMuls = ROW_MULS.sum();
+        private final long linearCombinations = LINEAR_COMBINATIONS.sum();
+        private final long gcdCalls = GCD_CALLS.sum();
+        private final long promotions = PROMOTIONS.sum();
+        private final long internHits = INTERN_HITS.sum();
+        private final long eliminations = ELIMINATIONS.sum();
+        private final long gaussNanos = GAUSS_NANOS.sum();
+        private final long jordanNanos = JORDAN_NANOS.sum();
+        private final long certified = CERTIFIED.sum();
+        private final long certifyFallbacks = CERTIFY_FALLBACKS.sum();
+
+        private Snapshot() {
+        }
+
+        public long getExchanges() {
+            return exchanges;
+        }
+
+        public long getRowMuls() {
+            return rowMuls;
+        }
+
+        public long getLinearCombinations() {
+            return linearCombinations;
+        }
+
+        public long getGcdCalls() {
+            return gcdCalls;
+        }
+
+        // Fraction results that needed the BigInteger representation
+        public long getPromotions() {
+            return promotions;
+        }
+
+        // Fraction allocations avoided by the interning layer
+        public long getInternHits() {
+            return internHits;
+        }
+
+        public long getEliminations() {
+            return eliminations;
+        }
+
+        public long getGaussNanos() {
+            return gaussNanos;
+        }
+
+        public long getJordanNanos() {
+            return jordanNanos;
+        }
+
+        // CERTIFIED solves answered by a verified floating-point candidate
+        public long getCertified() {
+            return certified;
+        }
+
+        // CERTIFIED solves that fell back to the exact engine
+        public long getCertifyFallbacks() {
+            return certifyFallbacks;
+        }
+
+        public Map<String, Long> toMap() {
+            var map = new LinkedHashMap<String, Long>();
+            map.put("exchanges", exchanges);
+            map.put("rowMuls", rowMuls);
+            map.put("linearCombinations", linearCombinations);
+            map.put("gcdCalls", gcdCalls);
+            map.put("promotions", promotions);
+            map.put("internHits", internHits);
+            map.put("eliminations", eliminations);
+            map.put("gaussNanos", gaussNanos);
+            map.put("jordanNanos", jordanNanos);
+            map.put("certified", certified);
+            map.put("certifyFallbacks", certifyFallbacks);
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics" + toMap();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.rvec;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.function.LongFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Multi-modular determinant and rank of integer matrices.
+ * <p>
+ * The matrix is reduced modulo several primes just below 2^31, so every
+ * product of two residues fits in a long and the eliminations allocate
+ * nothing. The primes are processed in parallel. The determinant is
+ * rebuilt with the Chinese Remainder Theorem once the product of the
+ * primes exceeds twice the Hadamard bound. The rank is the largest rank
+ * seen modulo those primes. Both results are exact.
+ */
+final class Modular {
+    private static final int PRIME_BITS = 30;
+
+    private static long[] primes = new long[0];
+
+    private Modular() {
+    }
+
+    static BigInteger det(long[] a, int n) {
+        return det(p -> reduce(a, p), n, hadamardLog2(a, n, n));
+    }
+
+    static BigInteger det(BigInteger[] a, int n) {
+        return det(p -> reduce(a, p), n, hadamardLog2(a, n, n));
+    }
+
+    static int rank(long[] a, int m, int n) {
+        return rank(p -> reduce(a, p), m, n, hadamardLog2(a, m, n));
+    }
+
+    static int rank(BigInteger[] a, int m, int n) {
+        return rank(p -> reduce(a, p), m, n, hadamardLog2(a, m, n));
+    }
+
+    private static BigInteger det(LongFunction<long[]> residues, int n, double log2Bound) {
+        // enough primes for the modulus to exceed 2 * |det|
+        var k = (int) Math.ceil((log2Bound + 2) / PRIME_BITS) + 1;
+        var ps = primes(k);
+        var rs = IntStream.range(0, k).parallel()
+                .mapToLong(i -> detMod(residues.apply(ps[i]), n, ps[i]))
+                .toArray();
+
+        var x = BigInteger.valueOf(rs[0]);
+        var mod = BigInteger.valueOf(ps[0]);
+        for (int i = 1; i < k; i++) {
+            var p = ps[i];
+            var t = Math.floorMod(rs[i] - x.mod(BigInteger.valueOf(p)).longValue(), p);
+            t = t * inverse(mod.mod(BigInteger.valueOf(p)).longValue(), p) % p;
+            x = x.add(mod.multiply(BigInteger.valueOf(t)));
+            mod = mod.multiply(BigInteger.valueOf(p));
+        }
+        // map back from [0, mod) to the symmetric range
+        if (x.shiftLeft(1).compareTo(mod) > 0) {
+            x = x.subtract(mod);
+        }
+        return x;
+    }
+
+    private static int rank(LongFunction<long[]> residues, int m, int n, double log2Bound) {
+        var full = Math.min(m, n);
+        var p0 = primes(1)[0];
+        var r = rankMod(residues.apply(p0), m, n, p0);
+        if (r == full) {
+            return r;
+        }
+        // rank mod p can only drop if p divides every r x r minor; the
+        // product of the primes exceeds any minor, so one of them does not
+        var k = (int) Math.ceil((log2Bound + 1) / PRIME_BITS) + 1;
+        var ps = primes(k);
+        var best = IntStream.range(1, k).parallel()
+                .map(i -> rankMod(residues.apply(ps[i]), m, n, ps[i]))
+                .max().orElse(r);
+        return Math.max(r, best);
+    }
+
+    // a is n x n row-major with entries in [0, p) and is overwritten
+    private static long detMod(long[] a, int n, long p) {
+        long d = 1;
+        for (int k = 0; k < n; k++) {
+            int r = k;
+            while (r < n && a[r * n + k] == 0) {
+                r++;
+            }
+            if (r == n) {
+                return 0;
+            }
+            if (r != k) {
+                swapRows(a, n, k, r);
+                d = p - d;
+            }
+            var pk = a[k * n + k];
+            d = d * pk % p;
+            var inv = inverse(pk, p);
+            eliminateBelow(a, n, n, k, k, inv, p);
+        }
+        return d;
+    }
+
+    private static int rankMod(long[] a, int m, int n, long p) {
+        int i = 0;
+        for (int j = 0; j < n && i < m; j++) {
+            int r = i;
+            while (r < m && a[r * n + j] == 0) {
+                r++;
+            }
+            if (r == m) {
+                continue;
+            }
+            if (r != i) {
+                swapRows(a, n, i, r);
+            }
+            eliminateBelow(a, m, n, i, j, inverse(a[i * n + j], p), p);
+            i++;
+        }
+        return i;
+    }
+
+    private static void eliminateBelow(long[] a, int m, int n, int i, int j, long inv, long p) {
+        for (int r = i + 1; r < m; r++) {
+            var f = a[r * n + j];
+            if (f == 0) {
+                continue;
+            }
+            f = f * inv % p;
+            var ro = r * n;
+            var io = i * n;
+            for (int c = j + 1; c < n; c++) {
+                var v = a[ro + c] - f * a[io + c] % p;
+                a[ro + c] = v < 0 ? v + p : v;
+            }
+            a[ro + j] = 0;
+        }
+    }
+
+    private static void swapRows(long[] a, int n, int r1, int r2) {
+        for (int j = 0; j < n; j++) {
+            var tmp = a[r1 * n + j];
+            a[r1 * n + j] = a[r2 * n + j];
+            a[r2 * n + j] = tmp;
+        }
+    }
+
+    private static long[] reduce(long[] a, long p) {
+        var r = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            r[i] = Math.floorMod(a[i], p);
+        }
+        return r;
+    }
+
+    private static long[] reduce(BigInteger[] a, long p) {
+        var bp = BigInteger.valueOf(p);
+        var r = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            r[i] = a[i].mod(bp).longValue();
+        }
+        return r;
+    }
+
+    // log2 of prod(max(1, |row i|)), which bounds every minor
+    private static double hadamardLog2(long[] a, int m, int n) {
+        double s = 0;
+        for (int i = 0; i < m; i++) {
+            double sq = 0;
+            for (int j = 0; j < n; j++) {
+                double x = a[i * n + j];
+                sq += x * x;
+            }
+            if (sq > 1) {
+                s += 0.5 * Math.log(sq) / Math.log(2);
+            }
+        }
+        // absorb floating point rounding
+        return s * (1 + 1e-9) + 1;
+    }
+
+    private static double hadamardLog2(BigInteger[] a, int m, int n) {
+        double s = 0;
+        for (int i = 0; i < m; i++) {
+            int bits = 0;
+            for (int j = 0; j < n; j++) {
+                bits = Math.max(bits, a[i * n + j].bitLength());
+            }
+            if (bits > 0) {
+                // |row| <= sqrt(n) * 2^bits
+                s += bits + 0.5 * Math.log(n) / Math.log(2);
+            }
+        }
+        return s + 1;
+    }
+
+    private static long inverse(long a, long p) {
+        long r = 1;
+        long b = a;
+        for (long e = p - 2; e > 0; e >>= 1) {
+            if ((e & 1) != 0) {
+                r = r * b % p;
+            }
+            b = b * b % p;
+        }
+        return r;
+    }
+
+    // the k largest primes below 2^31, in descending order
+    private static synchronized long[] primes(int k) {
+        if (primes.length < k) {
+            var ps = Arrays.copyOf(primes, Math.max(k, 2 * primes.length));
+            var c = primes.length == 0 ? (1L << 31) - 1 : primes[primes.length - 1] - 2;
+            for (int i = primes.length; i < ps.length; c -= 2) {
+                if (isPrime(c)) {
+                    ps[i++] = c;
+                }
+            }
+            primes = ps;
+        }
+        return primes;
+    }
+
+    // deterministic Miller-Rabin for n < 3,215,031,751
+    private static boolean isPrime(long n) {
+        if (n < 2) return false;
+        for (long q : new long[]{2, 3, 5, 7}) {
+            if (n % q == 0) return n == q;
+        }
+        var d = n - 1;
+        var s = Long.numberOfTrailingZeros(d);
+        d >>= s;
+        for (long b : new long[]{2, 3, 5, 7}) {
+            var x = 1L;
+            var y = b;
+            for (long e = d; e > 0; e >>= 1) {
+                if ((e & 1) != 0) {
+                    x = x * y % n;
+                }
+                y = y * y % n;
+            }
+            if (x == 1 || x == n - 1) continue;
+            boolean witness = true;
+            for (int r = 1; r < s; r++) {
+                x = x * x % n;
+                if (x == n - 1) {
+                    witness = false;
+                    break;
+                }
+            }
+            if (witness) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.EOp;
+import com.example.rvec.RVec.Fraction;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Append-only log of elementary row operations, stored as parallel
+ * primitive arrays rather than one EOp (plus a Fraction) per operation.
+ * <p>
+ * Each entry keeps row1, row2 (-1 for a row multiplication) and the
+ * coefficient as a reduced num/den pair. A den of -1 marks an exchange,
+ * and a den of 0 marks a coefficient too wide for longs, which is kept
+ * in a side table. EOp objects are only created when entries are read
+ * through get or asList.
+ */
+public class OpLog {
+    private static final long EXCHANGE = -1;
+    private static final long WIDE = 0;
+
+    private int size;
+    private int[] row1 = new int[16];
+    private int[] row2 = new int[16];
+    private long[] num = new long[16];
+    private long[] den = new long[16];
+    private Fraction[] wide;
+
+    OpLog() {
+    }
+
+    void add(int r1, int r2, Fraction k) {
+        if (size == row1.length) {
+            var cap = size * 2;
+            row1 = Arrays.copyOf(row1, cap);
+            row2 = Arrays.copyOf(row2, cap);
+            num = Arrays.copyOf(num, cap);
+            den = Arrays.copyOf(den, cap);
+            if (wide != null) {
+                wide = Arrays.copyOf(wide, cap);
+            }
+        }
+        row1[size] = r1;
+        row2[size] = r2;
+        if (k == null) {
+            num[size] = 0;
+            den[size] = EXCHANGE;
+        } else if (k.fitsLong()) {
+            num[size] = k.getNum();
+            den[size] = k.getDen();
+        } else {
+            if (wide == null) {
+                wide = new Fraction[row1.length];
+            }
+            wide[size] = k;
+            num[size] = 0;
+            den[size] = WIDE;
+        }
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean isExchange(int i) {
+        return den[i] == EXCHANGE;
+    }
+
+    boolean isRowMul(int i) {
+        return row2[i] == -1;
+    }
+
+    Fraction coefficient(int i) {
+        if (den[i] == EXCHANGE) {
+            return null;
+        }
+        return den[i] == WIDE ? wide[i] : Fraction.reduced(num[i], den[i]);
+    }
+
+    public EOp get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new EOp(row1[i], row2[i], coefficient(i));
+    }
+
+    // applies every logged operation to rv, in order
+    public void replay(RVec rv) {
+        for (int i = 0; i < size; i++) {
+            EOp.apply(rv, row1[i], row2[i], coefficient(i));
+        }
+    }
+
+    // read-only view that materializes an EOp per access
+    public List<EOp> asList() {
+        return new OpList();
+    }
+
+    private class OpList extends AbstractList<EOp> implements RandomAccess {
+        @Override
+        public EOp get(int index) {
+            return OpLog.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+
+import java.util.Arrays;
+
+/**
+ * Sampling trace of elimination row operations. Every sampleEvery-th
+ * operation is kept, up to capacity samples, together with its sequence
+ * number. Only the operation is recorded, never the matrix, so a trace
+ * can stay attached to production eliminations and does not force them
+ * onto the sequential path.
+ * <p>
+ * A trace may be shared between eliminations running on different
+ * threads.
+ */
+public class OpTrace {
+    private final int sampleEvery;
+    private final int capacity;
+    private final OpLog samples = new OpLog();
+    private long[] sequence = new long[16];
+    private long seen;
+
+    public OpTrace(int sampleEvery, int capacity) {
+        if (sampleEvery < 1 || capacity < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.sampleEvery = sampleEvery;
+        this.capacity = capacity;
+    }
+
+    synchronized void record(int row1, int row2, Fraction k) {
+        var s = seen++;
+        if (s % sampleEvery != 0 || samples.size() >= capacity) {
+            return;
+        }
+        if (samples.size() == sequence.length) {
+            sequence = Arrays.copyOf(sequence, sequence.length * 2);
+        }
+        sequence[samples.size()] = s;
+        samples.add(row1, row2, k);
+    }
+
+    // total number of operations observed, sampled or not
+    public synchronized long getSeen() {
+        return seen;
+    }
+
+    public synchronized int size() {
+        return samples.size();
+    }
+
+    public synchronized RVec.EOp getSample(int i) {
+        return samples.get(i);
+    }
+
+    // sequence number of the i-th sample among all observed operations
+    public synchronized long getSequence(int i) {
+        if (i < 0 || i >= samples.size()) {
+            throw new IndexOutOfBoundsException();
+        }
+        return sequence[i];
+    }
+}
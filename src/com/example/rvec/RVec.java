@@ -1,19 +1,27 @@
 package com.example.rvec;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.BiPredicate;
+import java.util.stream.IntStream;
 
 @SuppressWarnings("unused")
 public class RVec {
     private final Fraction[][] ma;
     private final int m;
     private final int n;
+    // content hash, 0 until computed; cleared by every in-place row operation
+    private volatile long hash;
 
 
-    private RVec(int m, int n, Fraction[][] ma) {
+    RVec(int m, int n, Fraction[][] ma) {
         if (m < 1 || n < 1) {
             throw new IllegalArgumentException();
         }
@@ -82,6 +90,31 @@ public class RVec {
         return ma[i][j];
     }
 
+    public int getRows() {
+        return m;
+    }
+
+    public int getCols() {
+        return n;
+    }
+
+    public FlatRVec toFlat() {
+        return FlatRVec.of(this);
+    }
+
+    public SparseRVec toSparse() {
+        return SparseRVec.of(this);
+    }
+
+    public LazyRVec lazy() {
+        return LazyRVec.of(this);
+    }
+
+    // rows [r0, r1) and columns [c0, c1), as a view sharing this matrix
+    public LazyRVec slice(int r0, int r1, int c0, int c1) {
+        return lazy().slice(r0, r1, c0, c1);
+    }
+
     public RVec transpose() {
         var rv = new RVec(n, m);
         for (int i = 0; i < m; i++) {
@@ -154,6 +187,17 @@ public class RVec {
         return true;
     }
 
+    public boolean isIntegral() {
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                if (!ma[i][j].isInteger()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     public boolean isEye() {
         if (m != n) return false;
 
@@ -176,10 +220,16 @@ public class RVec {
         return ma[0][0];
     }
 
+    // above this many multiply-adds, dot runs on the packed FlatRVec kernel
+    private static final long FLAT_DOT_WORK = 1L << 12;
+
     public RVec dot(RVec other) {
         if (n != other.m) {
             throw new ArithmeticException();
         }
+        if ((long) m * n * other.n >= FLAT_DOT_WORK) {
+            return toFlat().dot(other.toFlat()).toVec();
+        }
         var rv = new RVec(m, other.n);
 
         for (int i = 0; i < m; i++) {
@@ -195,6 +245,129 @@ public class RVec {
         return rv;
     }
 
+    public RVec dotStrassen(RVec other) {
+        return dotStrassen(other, FlatRVec.STRASSEN_CROSSOVER);
+    }
+
+    public RVec dotStrassen(RVec other, int crossover) {
+        if (n != other.m) {
+            throw new ArithmeticException();
+        }
+        return toFlat().dotStrassen(other.toFlat(), crossover).toVec();
+    }
+
+    public enum PowStrategy {
+        // CAYLEY_HAMILTON for integer matrices when it takes fewer matrix
+        // products, SQUARING otherwise: over fractions the gcds of the
+        // polynomial arithmetic cost more than the products saved
+        AUTO,
+        // Binary exponentiation: up to 2 log2(k) products
+        SQUARING,
+        // x^k mod the characteristic polynomial, evaluated at A by Horner:
+        // n - 2 products whatever k, each with A as the right factor
+        CAYLEY_HAMILTON
+    }
+
+    public RVec pow(long k) {
+        return pow(k, PowStrategy.AUTO);
+    }
+
+    // A^k, through inv() for negative k
+    public RVec pow(long k, PowStrategy strategy) {
+        if (m != n) {
+            throw new UnsupportedOperationException();
+        }
+        if (k < 0) {
+            var r = inv();
+            // -Long.MIN_VALUE does not fit
+            return k == Long.MIN_VALUE ? r.pow(Long.MAX_VALUE, strategy).dot(r) : r.pow(-k, strategy);
+        }
+        if (k == 0) {
+            return eye(n);
+        }
+        var squarings = 63 - Long.numberOfLeadingZeros(k);
+        var products = squarings + Long.bitCount(k) - 1;
+        // charPoly is O(n^4), worth about n / 4 products
+        if (strategy == PowStrategy.CAYLEY_HAMILTON
+                || strategy == PowStrategy.AUTO && n > 1 && n - 2 + n / 4 < products && isIntegral()) {
+            return powCayleyHamilton(k);
+        }
+        var r = this;
+        for (int bit = squarings - 1; bit >= 0; bit--) {
+            r = r.dot(r);
+            if ((k >>> bit & 1) != 0) {
+                r = r.dot(this);
+            }
+        }
+        return r == this ? copy() : r;
+    }
+
+    private RVec powCayleyHamilton(long k) {
+        var p = charPoly();
+        // x^k mod p, left to right over the bits of k; p is monic, so
+        // reducing never divides
+        var r = new Fraction[n];
+        Arrays.fill(r, Fraction.ZERO);
+        r[0] = Fraction.ONE;
+        for (int bit = 63 - Long.numberOfLeadingZeros(k); bit >= 0; bit--) {
+            r = mulMod(r, r, p);
+            if ((k >>> bit & 1) != 0) {
+                r = shiftMod(r, p);
+            }
+        }
+
+        if (n == 1) {
+            return eye(1).mul(r[0]);
+        }
+        var rv = mul(r[n - 1]);
+        for (int i = n - 2; i >= 0; i--) {
+            if (i != n - 2) {
+                rv = rv.dot(this);
+            }
+            for (int j = 0; j < n; j++) {
+                rv.ma[j][j] = rv.ma[j][j].add(r[i]);
+            }
+        }
+        return rv;
+    }
+
+    // a b mod p for polynomials of degree below n, constant term first
+    private static Fraction[] mulMod(Fraction[] a, Fraction[] b, Fraction[] p) {
+        var n = a.length;
+        var prod = new Fraction[2 * n - 1];
+        Arrays.fill(prod, Fraction.ZERO);
+        for (int i = 0; i < n; i++) {
+            if (a[i].isZero()) {
+                continue;
+            }
+            for (int j = 0; j < n; j++) {
+                prod[i + j] = prod[i + j].add(a[i].mul(b[j]));
+            }
+        }
+        for (int d = 2 * n - 2; d >= n; d--) {
+            var q = prod[d];
+            if (q.isZero()) {
+                continue;
+            }
+            for (int i = 0; i < n; i++) {
+                prod[d - n + i] = prod[d - n + i].sub(q.mul(p[i]));
+            }
+        }
+        return Arrays.copyOf(prod, n);
+    }
+
+    // x a mod p
+    private static Fraction[] shiftMod(Fraction[] a, Fraction[] p) {
+        var n = a.length;
+        var q = a[n - 1];
+        var r = new Fraction[n];
+        r[0] = q.mul(p[0]).neg();
+        for (int i = 1; i < n; i++) {
+            r[i] = a[i - 1].sub(q.mul(p[i]));
+        }
+        return r;
+    }
+
     public Fraction sum() {
         var s = Fraction.ZERO;
         for (int i = 0; i < m; i++) {
@@ -259,6 +432,7 @@ public class RVec {
     }
 
     private static void gauss(RVec rv, Elimination elim) {
+        var start = System.nanoTime();
         int i = 0;
         int j = 0;
 
@@ -281,55 +455,155 @@ public class RVec {
                 elim.exchange(i, k);
                 pivot = rv.ma[i][j];
             }
+            elim.pivot(j);
             if (!pivot.isOne()) {
                 elim.mul(i, pivot.recip());
             }
             for (int k = i + 1; k < rv.m; k++) {
                 var ce = rv.ma[k][j];
                 if (!ce.isZero()) {
-                    elim.lc(k, i, ce.neg());
+                    elim.queueLc(k, ce.neg());
                 }
             }
+            elim.flushLc(i);
             i += 1;
             j += 1;
         }
+        elim.gaussDone(System.nanoTime() - start);
     }
 
     private static void jordan(RVec rv, Elimination elim) {
-        elim.zeroRows = 0;
-        for (int i = rv.m - 1; i > 0; i--) {
-            int j = 0;
-            boolean found = false;
-            while (j < rv.n) {
-                if (!rv.ma[i][j].isZero()) {
-                    found = true;
-                    break;
-                }
-                j++;
-            }
-            if (!found) {
-                elim.zeroRows++;
-                continue;
-            }
+        var start = System.nanoTime();
+        // rows past the rank are zero after gauss
+        for (int i = elim.rank() - 1; i > 0; i--) {
+            var j = elim.pivotColumn(i);
             for (int k = i - 1; k >= 0; k--) {
                 var ce = rv.ma[k][j];
                 if (!ce.isZero()) {
-                    elim.lc(k, i, ce.neg());
+                    elim.queueLc(k, ce.neg());
                 }
             }
+            elim.flushLc(i);
         }
+        elim.jordanDone(System.nanoTime() - start);
     }
 
     public Elimination gaussJordan() {
-        var rv = copy();
-        var elim = new Elimination(rv);
+        return gaussJordan(true);
+    }
+
+    public Elimination gaussJordan(boolean parallel) {
+        return gaussJordan(Elimination.options().parallel(parallel));
+    }
+
+    public Elimination gaussJordan(boolean parallel, Elimination.Recording recording) {
+        return gaussJordan(Elimination.options().parallel(parallel).recording(recording));
+    }
+
+    public Elimination gaussJordan(Elimination.Options options) {
+        return gaussJordanInPlace(copy(), lazy(), options);
+    }
+
+    // rv must not be shared, since the elimination runs on it directly.
+    // source views the matrix before elimination, kept for columnSpace(),
+    // or is null.
+    static Elimination gaussJordanInPlace(RVec rv, LazyRVec source, Elimination.Options options) {
+        var elim = new Elimination(rv, source, options);
         gauss(rv, elim);
         jordan(rv, elim);
         return elim;
     }
 
     public RVec rref() {
-        return gaussJordan().getVector();
+        return gaussJordan(true, Elimination.Recording.OFF).getVector();
+    }
+
+    public LU lu() {
+        if (m != n) {
+            throw new UnsupportedOperationException();
+        }
+        var rv = copy();
+        var elim = new Elimination(rv, true);
+        gauss(rv, elim);
+        return new LU(rv, elim.getOps());
+    }
+
+    public enum SolveStrategy {
+        // LU factorization over the rationals
+        EXACT,
+        // Double-precision LU, rationalized and verified exactly, with
+        // EXACT as the fallback when the candidate does not verify
+        CERTIFIED
+    }
+
+    public RVec solve(RVec b) {
+        return solve(b, SolveStrategy.EXACT);
+    }
+
+    public RVec solve(RVec b, SolveStrategy strategy) {
+        if (m != n) {
+            throw new UnsupportedOperationException();
+        }
+        if (b.m != n) {
+            throw new IllegalArgumentException();
+        }
+        if (strategy == SolveStrategy.CERTIFIED) {
+            var x = solveCertified(b);
+            // A x = b only pins x down if A is nonsingular
+            if (x != null && rank() == n) {
+                Metrics.CERTIFIED.increment();
+                return x;
+            }
+            Metrics.CERTIFY_FALLBACKS.increment();
+        }
+        return lu().solve(b);
+    }
+
+    public RVec inv(SolveStrategy strategy) {
+        if (m != n) {
+            throw new UnsupportedOperationException();
+        }
+        if (strategy == SolveStrategy.CERTIFIED) {
+            // A X = I already proves A nonsingular
+            var x = solveCertified(eye(n));
+            if (x != null) {
+                Metrics.CERTIFIED.increment();
+                return x;
+            }
+            Metrics.CERTIFY_FALLBACKS.increment();
+        }
+        return inv();
+    }
+
+    // candidate from a double solve, rationalized entry by entry; null
+    // unless it satisfies A x = b exactly
+    private RVec solveCertified(RVec b) {
+        var k = b.n;
+        var a = new double[n * n];
+        var y = new double[n * k];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                a[i * n + j] = ma[i][j].eval();
+            }
+            for (int c = 0; c < k; c++) {
+                y[i * k + c] = b.ma[i][c].eval();
+            }
+        }
+        if (!Approx.solve(a, y, n, k)) {
+            return null;
+        }
+        var x = new Fraction[n][k];
+        for (int i = 0; i < n; i++) {
+            for (int c = 0; c < k; c++) {
+                var f = Approx.rationalize(y[i * k + c]);
+                if (f == null) {
+                    return null;
+                }
+                x[i][c] = f;
+            }
+        }
+        var rv = new RVec(n, k, x);
+        return dot(rv).strictEquals(b) ? rv : null;
     }
 
     public RVec inv() {
@@ -337,22 +611,166 @@ public class RVec {
             throw new UnsupportedOperationException();
         }
         var elim = gaussJordan();
-        if (elim.zeroRows > 0) {
+        if (elim.rank() < n) {
             throw new ArithmeticException("Matrix is not invertible");
         }
         var inverse = eye(n);
-        for (EOp op : elim.getOps()) {
-            op.transform(inverse);
-        }
+        elim.getLog().replay(inverse);
         return inverse;
     }
 
+    public enum DetStrategy {
+        // Bareiss for small integral matrices, modular for large ones,
+        // elimination otherwise
+        AUTO,
+        // Gauss elimination over the rationals
+        ELIMINATION,
+        // Fraction-free Bareiss elimination, after clearing denominators
+        BAREISS,
+        // Multi-modular elimination with CRT, after clearing denominators
+        MODULAR
+    }
+
+    private static final int MODULAR_THRESHOLD = 16;
+
     public Fraction det() {
+        return det(DetStrategy.AUTO);
+    }
+
+    public Fraction det(DetStrategy strategy) {
         if (m != n) {
             throw new UnsupportedOperationException();
         }
+        switch (strategy) {
+            case ELIMINATION:
+                return detElimination();
+            case BAREISS:
+                return detBareiss();
+            case MODULAR:
+                return detModular();
+            default:
+                if (!isIntegral()) {
+                    return detElimination();
+                }
+                return n < MODULAR_THRESHOLD ? detBareiss() : detModular();
+        }
+    }
+
+    private Fraction detBareiss() {
+        var a = toLongs();
+        if (a != null) {
+            return Fraction.of(Bareiss.det(a, n), BigInteger.ONE);
+        }
+        var b = new BigInteger[m * n];
+        var scale = clearDenominators(b);
+        return Fraction.of(Bareiss.det(b, n), scale);
+    }
+
+    private Fraction detModular() {
+        var a = toLongs();
+        if (a != null) {
+            return Fraction.of(Modular.det(a, n), BigInteger.ONE);
+        }
+        var b = new BigInteger[m * n];
+        var scale = clearDenominators(b);
+        return Fraction.of(Modular.det(b, n), scale);
+    }
+
+    public int rank() {
+        var a = toLongs();
+        if (a != null) {
+            return Modular.rank(a, m, n);
+        }
+        var b = new BigInteger[m * n];
+        clearDenominators(b);
+        return Modular.rank(b, m, n);
+    }
+
+    // Coefficients of det(xI - A), constant term first; the last is 1.
+    // Berkowitz on the integer matrix d A, where d is the common
+    // denominator: the coefficient of x^k comes out scaled by d^(n - k).
+    public Fraction[] charPoly() {
+        if (m != n) {
+            throw new UnsupportedOperationException();
+        }
+        var a = toLongs();
+        BigInteger[] p;
+        var d = BigInteger.ONE;
+        if (a != null) {
+            p = Berkowitz.charPoly(a, n);
+        } else {
+            var b = new BigInteger[n * n];
+            d = clearCommonDenominator(b);
+            p = Berkowitz.charPoly(b, n);
+        }
+        var c = new Fraction[n + 1];
+        var scale = BigInteger.ONE;
+        for (int k = n; k >= 0; k--) {
+            c[k] = Fraction.of(p[k], scale);
+            scale = scale.multiply(d);
+        }
+        return c;
+    }
+
+    // row-major entries if every entry is an integer that fits in a long
+    private long[] toLongs() {
+        var a = new long[m * n];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                var f = ma[i][j];
+                if (!f.fitsLong() || !f.isInteger()) {
+                    return null;
+                }
+                a[i * n + j] = f.getNum();
+            }
+        }
+        return a;
+    }
+
+    // Writes the matrix with each row scaled by the lcm of its
+    // denominators into out (row-major) and returns the product of the
+    // scales, so that det(this) = det(out) / scale and rank is unchanged.
+    private BigInteger clearDenominators(BigInteger[] out) {
+        var scale = BigInteger.ONE;
+        for (int i = 0; i < m; i++) {
+            var l = BigInteger.ONE;
+            for (int j = 0; j < n; j++) {
+                var d = ma[i][j].getBigDen();
+                l = l.divide(l.gcd(d)).multiply(d);
+            }
+            for (int j = 0; j < n; j++) {
+                var f = ma[i][j];
+                out[i * n + j] = f.getBigNum().multiply(l.divide(f.getBigDen()));
+            }
+            scale = scale.multiply(l);
+        }
+        return scale;
+    }
+
+    // Writes the matrix times the lcm d of all its denominators into out
+    // (row-major) and returns d. Unlike row scaling this keeps eigenvalues,
+    // only multiplied by d.
+    private BigInteger clearCommonDenominator(BigInteger[] out) {
+        var d = BigInteger.ONE;
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                var q = ma[i][j].getBigDen();
+                d = d.divide(d.gcd(q)).multiply(q);
+            }
+        }
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                var f = ma[i][j];
+                out[i * n + j] = f.getBigNum().multiply(d.divide(f.getBigDen()));
+            }
+        }
+        return d;
+    }
+
+    private Fraction detElimination() {
         var rv = copy();
-        var elim = new Elimination(rv);
+        var elim = new Elimination(rv, Elimination.options()
+                .parallel(false).recording(Elimination.Recording.PIVOTS));
         gauss(rv, elim);
 
         for (int i = m - 1; i >= 0; i--) {
@@ -362,11 +780,10 @@ public class RVec {
         }
 
         Fraction prod = Fraction.ONE;
-        var ops = elim.getOps();
-        for (int i = ops.size() - 1; i >= 0; i--) {
-            var op = ops.get(i);
-            if (op.isExchange()) prod = prod.neg();
-            else if (op.isRowMul()) prod = prod.div(op.k);
+        var log = elim.getLog();
+        for (int i = log.size() - 1; i >= 0; i--) {
+            if (log.isExchange(i)) prod = prod.neg();
+            else if (log.isRowMul(i)) prod = prod.div(log.coefficient(i));
         }
 
         return prod;
@@ -380,71 +797,52 @@ public class RVec {
 
     @Override
     public String toString() {
-        final StringBuilder sb = new StringBuilder("[");
-        sb.append(m).append(" Rows, ").append(n).append(" Columns]\n");
-
-        var sfy = new String[m][n];
-        var cols = new int[n];
-
-        for (int i = 0; i < m; i++) {
-            for (int j = 0; j < n; j++) {
-                var s = ma[i][j].toString();
-                sfy[i][j] = s;
-                cols[j] = Math.max(s.length(), cols[j]);
-            }
+        var sb = new StringBuilder();
+        try {
+            MatrixText.write(this, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-
-        for (int i = 0; i < m; i++) {
-            for (int j = 0; j < n; j++) {
-                var s = sfy[i][j];
-                var w = cols[j];
-                sb.append(" ".repeat(w - s.length())).append(s);
-                if (j != n - 1) {
-                    sb.append("    ");
-                }
-            }
-            sb.append("\n");
-        }
-
         return sb.toString();
     }
 
-    private RVec compare(RVec o, BiPredicate<Fraction, Fraction> cond) {
+    private Mask compare(RVec o, BiPredicate<Fraction, Fraction> cond) {
         if (m != o.m || n != o.n) {
             throw new IllegalArgumentException();
         }
-        var rv = new RVec(m, n);
+        var mask = new Mask(m, n);
 
         for (int i = 0; i < m; i++) {
             for (int j = 0; j < n; j++) {
-                rv.ma[i][j] = cond.test(ma[i][j], o.ma[i][j])
-                        ? Fraction.ONE : Fraction.ZERO;
+                if (cond.test(ma[i][j], o.ma[i][j])) {
+                    mask.set(i, j);
+                }
             }
         }
-        return rv;
+        return mask;
     }
 
-    public RVec compareEquals(RVec o) {
+    public Mask compareEquals(RVec o) {
         return compare(o, Fraction::equals);
     }
 
-    public RVec compareNotEquals(RVec o) {
+    public Mask compareNotEquals(RVec o) {
         return compare(o, Fraction::notEquals);
     }
 
-    public RVec compareGreater(RVec o) {
+    public Mask compareGreater(RVec o) {
         return compare(o, Fraction::isGreater);
     }
 
-    public RVec compareGreaterEqual(RVec o) {
+    public Mask compareGreaterEqual(RVec o) {
         return compare(o, Fraction::isGreaterEqual);
     }
 
-    public RVec compareLesser(RVec o) {
+    public Mask compareLesser(RVec o) {
         return compare(o, Fraction::isLesser);
     }
 
-    public RVec compareLesserEqual(RVec o) {
+    public Mask compareLesserEqual(RVec o) {
         return compare(o, Fraction::isLesserEqual);
     }
 
@@ -470,11 +868,26 @@ public class RVec {
         return strictEquals((RVec) o);
     }
 
+    // 64-bit hash of the shape and every cell, computed once
+    public long contentHash() {
+        var h = hash;
+        if (h == 0) {
+            h = Fraction.mix(m * 31L + n);
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < n; j++) {
+                    h = h * 0x9E3779B97F4A7C15L + ma[i][j].hash64();
+                }
+            }
+            h = Fraction.mix(h);
+            hash = h;
+        }
+        return h;
+    }
+
     @Override
     public int hashCode() {
-        int result = Objects.hash(m, n);
-        result = 31 * result + Arrays.deepHashCode(ma);
-        return result;
+        var h = contentHash();
+        return (int) (h ^ (h >>> 32));
     }
 
     public static class EOp {
@@ -482,7 +895,7 @@ public class RVec {
         final int row2;
         final Fraction k;
 
-        private EOp(int row1, int row2, Fraction k) {
+        EOp(int row1, int row2, Fraction k) {
             this.row1 = row1;
             this.row2 = row2;
             this.k = k;
@@ -507,14 +920,23 @@ public class RVec {
         }
 
         public void transform(RVec rv) {
+            apply(rv, row1, row2, k);
+        }
+
+        // transform without an EOp instance: k == null is an exchange,
+        // row2 == -1 a row multiplication
+        static void apply(RVec rv, int row1, int row2, Fraction k) {
             var ma = rv.ma;
-            if (isExchange()) {
+            if (rv.hash != 0) {
+                rv.hash = 0;
+            }
+            if (k == null) {
                 var tmp = ma[row1];
                 ma[row1] = ma[row2];
                 ma[row2] = tmp;
                 return;
             }
-            if (isRowMul()) {
+            if (row2 == -1) {
                 var row = ma[row1];
                 for (int i = 0; i < row.length; i++) {
                     row[i] = row[i].mul(k);
@@ -593,22 +1015,113 @@ public class RVec {
         }
     }
 
-    public static class Fraction {
+    public static class Fraction implements Comparable<Fraction> {
         private final long num;
         private final long den;
 
-        private static long gcd(long a, long b) {
-            return b == 0 ? a : gcd(b, a % b);
+        // Arbitrary-precision representation, only set when the reduced
+        // value does not fit in a pair of longs (or its numerator is
+        // Long.MIN_VALUE, see reduced). A fraction is either on
+        // the long path (bigNum == null) or on the BigInteger path, never
+        // both, so equality can compare representations directly.
+        private final BigInteger bigNum;
+        private final BigInteger bigDen;
+
+        // Binary (Stein) gcd of two non-negative longs
+        static long gcd(long a, long b) {
+            if (Metrics.ARITHMETIC) Metrics.GCD_CALLS.increment();
+            if (a == 0) return b;
+            if (b == 0) return a;
+            var shift = Long.numberOfTrailingZeros(a | b);
+            a >>>= Long.numberOfTrailingZeros(a);
+            while (b != 0) {
+                b >>>= Long.numberOfTrailingZeros(b);
+                if (a > b) {
+                    var tmp = a;
+                    a = b;
+                    b = tmp;
+                }
+                b -= a;
+            }
+            return a << shift;
+        }
+
+        static boolean mulOverflows(long a, long b) {
+            return Math.multiplyHigh(a, b) != ((a * b) >> 63);
+        }
+
+        static boolean addOverflows(long a, long b) {
+            long r = a + b;
+            return ((a ^ r) & (b ^ r)) < 0;
+        }
+
+        static boolean subOverflows(long a, long b) {
+            long r = a - b;
+            return ((a ^ b) & (a ^ r)) < 0;
+        }
+
+        // Canonical instances for small reduced values, which dominate
+        // elimination (0, 1, -1 and small integers), indexed by
+        // (den - 1) * SMALL_WIDTH + num + SMALL_NUM.
+        private static final int SMALL_NUM = 128;
+        private static final int SMALL_DEN = 16;
+        private static final int SMALL_WIDTH = 2 * SMALL_NUM + 1;
+        private static final Fraction[] SMALL = new Fraction[SMALL_DEN * SMALL_WIDTH];
+
+        // Direct-mapped cache for other values. Fractions are immutable
+        // with final fields, so racy reads and writes are benign: a lost
+        // update only costs an allocation.
+        private static final int CACHE_BITS = 12;
+        private static final Fraction[] CACHE = new Fraction[1 << CACHE_BITS];
+
+        static {
+            for (int d = 1; d <= SMALL_DEN; d++) {
+                for (int n = -SMALL_NUM; n <= SMALL_NUM; n++) {
+                    if (gcd(Math.abs(n), d) == 1) {
+                        SMALL[(d - 1) * SMALL_WIDTH + n + SMALL_NUM] = new Fraction(n, d);
+                    }
+                }
+            }
+        }
+
+        // num/den must already be reduced with den > 0
+        private static Fraction valueOf(long num, long den) {
+            if (den <= SMALL_DEN && num >= -SMALL_NUM && num <= SMALL_NUM) {
+                if (Metrics.ARITHMETIC) Metrics.INTERN_HITS.increment();
+                return SMALL[(int) (den - 1) * SMALL_WIDTH + (int) num + SMALL_NUM];
+            }
+            var h = (num * 0x9E3779B97F4A7C15L + den) * 0xC2B2AE3D27D4EB4FL;
+            var i = (int) (h >>> (64 - CACHE_BITS));
+            var f = CACHE[i];
+            if (f != null && f.num == num && f.den == den) {
+                if (Metrics.ARITHMETIC) Metrics.INTERN_HITS.increment();
+                return f;
+            }
+            f = new Fraction(num, den);
+            CACHE[i] = f;
+            return f;
         }
 
         public static Fraction fromLong(long num) {
-            return new Fraction(num, 1);
+            return reduced(num, 1);
+        }
+
+        // num/den must already be in lowest terms with den > 0. The long
+        // path never holds Long.MIN_VALUE so that negation and abs are safe.
+        static Fraction reduced(long num, long den) {
+            if (num == Long.MIN_VALUE) {
+                return new Fraction(BigInteger.valueOf(num), BigInteger.valueOf(den));
+            }
+            return valueOf(num, den);
         }
 
         public static Fraction of(long num, long den) {
             if (den == 0) {
                 throw new ArithmeticException();
             }
+            if (num == Long.MIN_VALUE || den == Long.MIN_VALUE) {
+                return of(BigInteger.valueOf(num), BigInteger.valueOf(den));
+            }
             if (den < 0) {
                 den = -den;
                 num = -num;
@@ -617,6 +1130,25 @@ public class RVec {
             num /= gcd;
             den /= gcd;
 
+            return valueOf(num, den);
+        }
+
+        public static Fraction of(BigInteger num, BigInteger den) {
+            if (den.signum() == 0) {
+                throw new ArithmeticException();
+            }
+            if (den.signum() < 0) {
+                den = den.negate();
+                num = num.negate();
+            }
+            var gcd = num.gcd(den);
+            if (!gcd.equals(BigInteger.ONE)) {
+                num = num.divide(gcd);
+                den = den.divide(gcd);
+            }
+            if (num.bitLength() < 64 && den.bitLength() < 64) {
+                return reduced(num.longValue(), den.longValue());
+            }
             return new Fraction(num, den);
         }
 
@@ -624,92 +1156,345 @@ public class RVec {
             if (den <= 0) throw new IllegalStateException();
             this.num = num;
             this.den = den;
+            this.bigNum = null;
+            this.bigDen = null;
+        }
+
+        private Fraction(BigInteger num, BigInteger den) {
+            if (den.signum() <= 0) throw new IllegalStateException();
+            Metrics.PROMOTIONS.increment();
+            this.num = 0;
+            this.den = 1;
+            this.bigNum = num;
+            this.bigDen = den;
         }
 
         public double eval() {
+            if (bigNum != null) {
+                return new BigDecimal(bigNum)
+                        .divide(new BigDecimal(bigDen), MathContext.DECIMAL64)
+                        .doubleValue();
+            }
             return ((double) num) / den;
         }
 
+        public boolean fitsLong() {
+            return bigNum == null;
+        }
+
         public long getNum() {
+            if (bigNum != null) {
+                throw new ArithmeticException("numerator does not fit in a long");
+            }
             return num;
         }
 
         public long getDen() {
+            if (bigNum != null) {
+                throw new ArithmeticException("denominator does not fit in a long");
+            }
             return den;
         }
 
-        public static final Fraction ONE = new Fraction(1, 1);
-        public static final Fraction ZERO = new Fraction(0, 1);
+        public BigInteger getBigNum() {
+            return bigNum != null ? bigNum : BigInteger.valueOf(num);
+        }
+
+        public BigInteger getBigDen() {
+            return bigDen != null ? bigDen : BigInteger.valueOf(den);
+        }
+
+        public static final Fraction ONE = valueOf(1, 1);
+        public static final Fraction ZERO = valueOf(0, 1);
 
 
         public Fraction add(Fraction other) {
-            return Fraction.of(num * other.den + other.num * den, den * other.den);
+            if (bigNum == null && other.bigNum == null) {
+                var f = addSmall(num, den, other.num, other.den);
+                if (f != null) {
+                    return f;
+                }
+            }
+            return Fraction.of(getBigNum().multiply(other.getBigDen())
+                            .add(other.getBigNum().multiply(getBigDen())),
+                    getBigDen().multiply(other.getBigDen()));
         }
 
         public Fraction add(long other) {
-            return Fraction.of(num + other * den, den);
+            // (num + other * den) / den is already in lowest terms
+            if (bigNum == null && !mulOverflows(other, den) && !addOverflows(num, other * den)) {
+                return reduced(num + other * den, den);
+            }
+            return add(fromLong(other));
         }
 
         public Fraction sub(Fraction other) {
-            return Fraction.of(num * other.den - other.num * den, den * other.den);
+            if (bigNum == null && other.bigNum == null) {
+                var f = addSmall(num, den, -other.num, other.den);
+                if (f != null) {
+                    return f;
+                }
+            }
+            return Fraction.of(getBigNum().multiply(other.getBigDen())
+                            .subtract(other.getBigNum().multiply(getBigDen())),
+                    getBigDen().multiply(other.getBigDen()));
         }
 
         public Fraction sub(long other) {
-            return Fraction.of(num - other * den, den);
+            if (bigNum == null && !mulOverflows(other, den) && !subOverflows(num, other * den)) {
+                return reduced(num - other * den, den);
+            }
+            return sub(fromLong(other));
+        }
+
+        // a/b + c/d using the lcm of the denominators (Knuth 4.5.1), so that
+        // intermediates stay as small as possible and the result needs no
+        // further reduction. Returns null if the long path overflows.
+        private static Fraction addSmall(long a, long b, long c, long d) {
+            var g = gcd(b, d);
+            if (g == 1) {
+                if (mulOverflows(a, d) || mulOverflows(c, b) || mulOverflows(b, d)
+                        || addOverflows(a * d, c * b)) {
+                    return null;
+                }
+                return reduced(a * d + c * b, b * d);
+            }
+            var bg = b / g;
+            var dg = d / g;
+            if (mulOverflows(a, dg) || mulOverflows(c, bg) || addOverflows(a * dg, c * bg)) {
+                return null;
+            }
+            var t = a * dg + c * bg;
+            if (t == 0) {
+                return ZERO;
+            }
+            var g2 = gcd(Math.abs(t), g);
+            var d2 = d / g2;
+            if (mulOverflows(bg, d2)) {
+                return null;
+            }
+            return reduced(t / g2, bg * d2);
+        }
+
+        // Primitive counterparts of add/mul for storage backends that keep
+        // cells as raw long pairs (see FlatRVec). Operands must be reduced
+        // with positive denominators; the reduced result is written to
+        // out[0] / out[1]. They return false when the result leaves the
+        // long path, in which case the caller falls back to Fraction.
+        static boolean addTo(long a, long b, long c, long d, long[] out) {
+            var g = gcd(b, d);
+            var bg = b / g;
+            var dg = d / g;
+            if (mulOverflows(a, dg) || mulOverflows(c, bg) || addOverflows(a * dg, c * bg)) {
+                return false;
+            }
+            var t = a * dg + c * bg;
+            if (t == 0) {
+                out[0] = 0;
+                out[1] = 1;
+                return true;
+            }
+            var g2 = g == 1 ? 1 : gcd(Math.abs(t), g);
+            var d2 = d / g2;
+            if (mulOverflows(bg, d2) || t == Long.MIN_VALUE) {
+                return false;
+            }
+            out[0] = t / g2;
+            out[1] = bg * d2;
+            return true;
+        }
+
+        static boolean mulTo(long a, long b, long c, long d, long[] out) {
+            if (a == 0 || c == 0) {
+                out[0] = 0;
+                out[1] = 1;
+                return true;
+            }
+            var g1 = gcd(Math.abs(a), d);
+            var g2 = gcd(Math.abs(c), b);
+            a /= g1;
+            b /= g2;
+            c /= g2;
+            d /= g1;
+            if (mulOverflows(a, c) || mulOverflows(b, d) || a * c == Long.MIN_VALUE) {
+                return false;
+            }
+            out[0] = a * c;
+            out[1] = b * d;
+            return true;
         }
 
         public Fraction mul(Fraction other) {
-            return Fraction.of(num * other.num, den * other.den);
+            if (bigNum == null && other.bigNum == null) {
+                if (num == 0 || other.num == 0) {
+                    return ZERO;
+                }
+                // cross-reduce before multiplying so the product is already
+                // in lowest terms and the operands are as small as possible
+                var g1 = gcd(Math.abs(num), other.den);
+                var g2 = gcd(Math.abs(other.num), den);
+                var a = num / g1;
+                var b = den / g2;
+                var c = other.num / g2;
+                var d = other.den / g1;
+                if (!mulOverflows(a, c) && !mulOverflows(b, d)) {
+                    return reduced(a * c, b * d);
+                }
+            }
+            return Fraction.of(getBigNum().multiply(other.getBigNum()),
+                    getBigDen().multiply(other.getBigDen()));
         }
 
         public Fraction mul(long other) {
-            return Fraction.of(num * other, den);
+            if (bigNum == null && other != Long.MIN_VALUE) {
+                if (num == 0 || other == 0) {
+                    return ZERO;
+                }
+                var g = gcd(Math.abs(other), den);
+                var k = other / g;
+                if (!mulOverflows(num, k)) {
+                    return reduced(num * k, den / g);
+                }
+            }
+            return mul(fromLong(other));
         }
 
         public Fraction div(Fraction other) {
-            return Fraction.of(num * other.den, den * other.num);
+            if (other.isZero()) {
+                throw new ArithmeticException();
+            }
+            if (bigNum == null && other.bigNum == null) {
+                if (num == 0) {
+                    return ZERO;
+                }
+                var g1 = gcd(Math.abs(num), Math.abs(other.num));
+                var g2 = gcd(den, other.den);
+                var a = num / g1;
+                var b = den / g2;
+                var c = other.num / g1;
+                var d = other.den / g2;
+                if (c < 0) {
+                    a = -a;
+                    c = -c;
+                }
+                if (!mulOverflows(a, d) && !mulOverflows(b, c)) {
+                    return reduced(a * d, b * c);
+                }
+            }
+            return Fraction.of(getBigNum().multiply(other.getBigDen()),
+                    getBigDen().multiply(other.getBigNum()));
         }
 
         public Fraction div(long other) {
-            return Fraction.of(num, den * other);
+            if (other == 0) {
+                throw new ArithmeticException();
+            }
+            if (bigNum == null && other != Long.MIN_VALUE) {
+                if (num == 0) {
+                    return ZERO;
+                }
+                var g = gcd(Math.abs(num), Math.abs(other));
+                var a = num / g;
+                var k = other / g;
+                if (k < 0) {
+                    a = -a;
+                    k = -k;
+                }
+                if (!mulOverflows(den, k)) {
+                    return reduced(a, den * k);
+                }
+            }
+            return div(fromLong(other));
         }
 
         public Fraction recip() {
-            return Fraction.of(den, num);
+            if (bigNum != null) {
+                return Fraction.of(bigDen, bigNum);
+            }
+            if (num == 0) {
+                throw new ArithmeticException();
+            }
+            return num < 0 ? reduced(-den, -num) : reduced(den, num);
         }
 
         public Fraction neg() {
-            return new Fraction(-num, den);
+            if (bigNum != null) {
+                return new Fraction(bigNum.negate(), bigDen);
+            }
+            return valueOf(-num, den);
         }
 
         @SuppressWarnings("BooleanMethodIsAlwaysInverted")
         public boolean isZero() {
-            return num == 0;
+            return bigNum == null && num == 0;
+        }
+
+        public boolean isInteger() {
+            return bigNum == null ? den == 1 : bigDen.equals(BigInteger.ONE);
         }
 
         @SuppressWarnings("BooleanMethodIsAlwaysInverted")
         public boolean isOne() {
-            return num == den;
+            return bigNum == null && num == den;
+        }
+
+        public int signum() {
+            return bigNum != null ? bigNum.signum() : Long.signum(num);
+        }
+
+        // Exact: compares a/b with c/d as a*d against c*b, in 128 bits on
+        // the long path so the cross products cannot overflow
+        @Override
+        public int compareTo(Fraction o) {
+            if (bigNum == null && o.bigNum == null
+                    && ((Math.abs(num) | den | Math.abs(o.num) | o.den) >>> 31) == 0) {
+                // both cross products fit in 62 bits
+                return Long.compare(num * o.den, o.num * den);
+            }
+            var s1 = signum();
+            var s2 = o.signum();
+            if (s1 != s2 || s1 == 0) {
+                return Integer.compare(s1, s2);
+            }
+            if (bigNum == null && o.bigNum == null) {
+                if (den == o.den) {
+                    return Long.compare(num, o.num);
+                }
+                var hi1 = Math.multiplyHigh(num, o.den);
+                var hi2 = Math.multiplyHigh(o.num, den);
+                if (hi1 != hi2) {
+                    return Long.compare(hi1, hi2);
+                }
+                return Long.compareUnsigned(num * o.den, o.num * den);
+            }
+            return getBigNum().multiply(o.getBigDen())
+                    .compareTo(o.getBigNum().multiply(getBigDen()));
         }
 
         public boolean isGreater(Fraction o) {
-            return eval() > o.eval();
+            return compareTo(o) > 0;
         }
 
         public boolean isGreaterEqual(Fraction o) {
-            return eval() >= o.eval();
+            return compareTo(o) >= 0;
         }
 
         public boolean isLesser(Fraction o) {
-            return eval() < o.eval();
+            return compareTo(o) < 0;
         }
 
         public boolean isLesserEqual(Fraction o) {
-            return eval() <= o.eval();
+            return compareTo(o) <= 0;
         }
 
         @Override
         public String toString() {
+            if (bigNum != null) {
+                if (bigDen.equals(BigInteger.ONE)) {
+                    return bigNum.toString();
+                }
+                return bigNum + "/" + bigDen;
+            }
             if (num == 0) {
                 return "0";
             }
@@ -724,16 +1509,34 @@ public class RVec {
             if (this == o) return true;
             if (o == null || getClass() != o.getClass()) return false;
             Fraction fraction = (Fraction) o;
-            return num == fraction.num && den == fraction.den;
+            return num == fraction.num && den == fraction.den
+                    && Objects.equals(bigNum, fraction.bigNum)
+                    && Objects.equals(bigDen, fraction.bigDen);
         }
 
         public boolean notEquals(Fraction o) {
             return !equals(o);
         }
 
+        // the representation is canonical, so equal values hash alike
+        long hash64() {
+            if (bigNum != null) {
+                return mix(bigNum.hashCode() * 0x9E3779B97F4A7C15L + bigDen.hashCode());
+            }
+            return mix(num * 0x9E3779B97F4A7C15L + den);
+        }
+
+        // SplitMix64 finalizer
+        static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+
         @Override
         public int hashCode() {
-            return Float.floatToIntBits((float) num / den);
+            var h = hash64();
+            return (int) (h ^ (h >>> 32));
         }
     }
 
@@ -755,49 +1558,323 @@ public class RVec {
         }
     }
 
+    // Per-elimination listener, called after every row operation with the
+    // matrix being reduced (not a copy). Attaching one keeps the
+    // elimination sequential so that every intermediate state is seen.
     @FunctionalInterface
     public interface OpStateInspector {
         void call(EOp op, RVec vec);
     }
 
-    public static OpStateInspector inspector;
-
     public static class Elimination {
+        // Which row operations are kept in the log. PIVOTS keeps exchanges
+        // and row multiplications, which is all det() replays.
+        public enum Recording {
+            OFF, PIVOTS, FULL
+        }
+
+        public static class Options {
+            private boolean parallel = true;
+            private Recording recording = Recording.FULL;
+            private OpStateInspector inspector;
+            private OpTrace trace;
+
+            private Options() {
+            }
+
+            public Options parallel(boolean parallel) {
+                this.parallel = parallel;
+                return this;
+            }
+
+            public Options recording(Recording recording) {
+                this.recording = Objects.requireNonNull(recording);
+                return this;
+            }
+
+            public Options inspector(OpStateInspector inspector) {
+                this.inspector = inspector;
+                return this;
+            }
+
+            public Options trace(OpTrace trace) {
+                this.trace = trace;
+                return this;
+            }
+        }
+
+        public static Options options() {
+            return new Options();
+        }
+
+        // minimum number of cell updates in one pivot step before its
+        // row operations are spread across the common ForkJoinPool
+        private static final long PARALLEL_WORK = 1L << 12;
+
         private final RVec rv;
-        private final List<EOp> ops = new ArrayList<>();
-        int zeroRows = 0;
+        private final boolean parallel;
+        private final Recording recording;
+        private final OpStateInspector inspector;
+        private final OpTrace trace;
+        private final OpLog log = new OpLog();
+        // the matrix before elimination, or null if not kept
+        private final LazyRVec source;
+
+        // pivot column of each of the first rank rows, set by gauss()
+        private final int[] pivotCols;
+        private int rank;
+        private boolean reduced;
+        private List<RVec> nullSpace;
+        private List<RVec> columnSpace;
+        private List<RVec> rowSpace;
+
+        private int exchanges;
+        private int rowMuls;
+        private int linearCombinations;
+        private long gaussNanos;
+        private long jordanNanos;
+
+        // linear combinations queued for the current pivot step
+        private final int[] stepRows;
+        private final Fraction[] stepKs;
+        private int stepSize;
 
         public Elimination(RVec rv) {
-            this.rv = rv;
+            this(rv, false);
+        }
+
+        public Elimination(RVec rv, boolean parallel) {
+            this(rv, options().parallel(parallel));
+        }
+
+        public Elimination(RVec rv, Options options) {
+            this(rv, null, options);
         }
 
-        void rowOp(EOp op) {
-            op.transform(rv);
+        Elimination(RVec rv, LazyRVec source, Options options) {
+            this.rv = rv;
+            this.source = source;
+            this.pivotCols = new int[Math.min(rv.m, rv.n)];
+            this.parallel = options.parallel && options.inspector == null;
+            this.recording = options.recording;
+            this.inspector = options.inspector;
+            this.trace = options.trace;
+            this.stepRows = new int[rv.m];
+            this.stepKs = new Fraction[rv.m];
+            Metrics.ELIMINATIONS.increment();
+        }
+
+        private void rowOp(int row1, int row2, Fraction k) {
+            EOp.apply(rv, row1, row2, k);
             if (inspector != null) {
-                inspector.call(op, rv);
+                inspector.call(new EOp(row1, row2, k), rv);
+            }
+            record(row1, row2, k);
+        }
+
+        private void record(int row1, int row2, Fraction k) {
+            if (k == null) {
+                exchanges++;
+                Metrics.EXCHANGES.increment();
+            } else if (row2 == -1) {
+                rowMuls++;
+                Metrics.ROW_MULS.increment();
+            } else {
+                linearCombinations++;
+                Metrics.LINEAR_COMBINATIONS.increment();
+            }
+            if (trace != null) {
+                trace.record(row1, row2, k);
             }
-            ops.add(op);
+            if (recording == Recording.FULL
+                    || (recording == Recording.PIVOTS && (k == null || row2 == -1))) {
+                log.add(row1, row2, k);
+            }
+        }
+
+        void gaussDone(long nanos) {
+            gaussNanos += nanos;
+            Metrics.GAUSS_NANOS.add(nanos);
+        }
+
+        void jordanDone(long nanos) {
+            jordanNanos += nanos;
+            Metrics.JORDAN_NANOS.add(nanos);
+            reduced = true;
+        }
+
+        void pivot(int col) {
+            pivotCols[rank++] = col;
+        }
+
+        int pivotColumn(int row) {
+            return pivotCols[row];
         }
 
         void exchange(int row1, int row2) {
-            rowOp(new EOp(row1, row2, null));
+            rowOp(row1, row2, null);
         }
 
         void mul(int row, Fraction k) {
-            rowOp(new EOp(row, -1, k));
+            rowOp(row, -1, k);
         }
 
         void lc(int row1, int row2, Fraction k) {
-            rowOp(new EOp(row1, row2, k));
+            rowOp(row1, row2, k);
+        }
+
+        void queueLc(int row, Fraction k) {
+            stepRows[stepSize] = row;
+            stepKs[stepSize] = k;
+            stepSize++;
+        }
+
+        // Applies the queued linear combinations against the pivot row.
+        // They target distinct rows and only read the pivot row, so they
+        // can run concurrently; the log keeps the queue order either way.
+        void flushLc(int pivotRow) {
+            var count = stepSize;
+            stepSize = 0;
+            if (parallel && count > 1 && (long) count * rv.n >= PARALLEL_WORK) {
+                IntStream.range(0, count).parallel()
+                        .forEach(s -> EOp.apply(rv, stepRows[s], pivotRow, stepKs[s]));
+                for (int s = 0; s < count; s++) {
+                    record(stepRows[s], pivotRow, stepKs[s]);
+                }
+            } else {
+                for (int s = 0; s < count; s++) {
+                    rowOp(stepRows[s], pivotRow, stepKs[s]);
+                }
+            }
+            Arrays.fill(stepKs, 0, count, null);
+        }
+
+        public Recording getRecording() {
+            return recording;
+        }
+
+        public int getExchanges() {
+            return exchanges;
+        }
+
+        public int getRowMuls() {
+            return rowMuls;
+        }
+
+        public int getLinearCombinations() {
+            return linearCombinations;
+        }
+
+        public long getGaussNanos() {
+            return gaussNanos;
+        }
+
+        public long getJordanNanos() {
+            return jordanNanos;
+        }
+
+        public OpLog getLog() {
+            return log;
         }
 
         public List<EOp> getOps() {
-            return ops;
+            return log.asList();
         }
 
         public RVec getVector() {
             return rv;
         }
+
+        // Analysis of the elimination. The bases are derived from the
+        // reduced matrix the first time they are asked for and cached;
+        // callers get copies.
+
+        public int rank() {
+            return rank;
+        }
+
+        public int nullity() {
+            return rv.n - rank;
+        }
+
+        // column of the leading 1 in each non-zero row, increasing
+        public int[] pivotColumns() {
+            return Arrays.copyOf(pivotCols, rank);
+        }
+
+        // n x 1 vectors, one per free column: 1 there, minus that column
+        // of the reduced matrix at the pivot columns, 0 elsewhere
+        public List<RVec> nullSpace() {
+            if (nullSpace == null) {
+                checkReduced();
+                var isPivot = new boolean[rv.n];
+                for (int r = 0; r < rank; r++) {
+                    isPivot[pivotCols[r]] = true;
+                }
+                var basis = new ArrayList<RVec>(rv.n - rank);
+                for (int f = 0; f < rv.n; f++) {
+                    if (isPivot[f]) {
+                        continue;
+                    }
+                    var x = zeros(rv.n, 1);
+                    x.ma[f][0] = Fraction.ONE;
+                    for (int r = 0; r < rank; r++) {
+                        x.ma[pivotCols[r]][0] = rv.ma[r][f].neg();
+                    }
+                    basis.add(x);
+                }
+                nullSpace = basis;
+            }
+            return copies(nullSpace);
+        }
+
+        // m x 1 pivot columns of the matrix before elimination
+        public List<RVec> columnSpace() {
+            if (columnSpace == null) {
+                if (source == null) {
+                    throw new IllegalStateException("source matrix not kept");
+                }
+                var basis = new ArrayList<RVec>(rank);
+                for (int r = 0; r < rank; r++) {
+                    var c = new RVec(source.getRows(), 1);
+                    for (int i = 0; i < c.m; i++) {
+                        c.ma[i][0] = source.at(i, pivotCols[r]);
+                    }
+                    basis.add(c);
+                }
+                columnSpace = basis;
+            }
+            return copies(columnSpace);
+        }
+
+        // 1 x n non-zero rows of the reduced matrix
+        public List<RVec> rowSpace() {
+            if (rowSpace == null) {
+                checkReduced();
+                var basis = new ArrayList<RVec>(rank);
+                for (int r = 0; r < rank; r++) {
+                    var row = new RVec(1, rv.n);
+                    System.arraycopy(rv.ma[r], 0, row.ma[0], 0, rv.n);
+                    basis.add(row);
+                }
+                rowSpace = basis;
+            }
+            return copies(rowSpace);
+        }
+
+        private void checkReduced() {
+            if (!reduced) {
+                throw new IllegalStateException("not in reduced row echelon form");
+            }
+        }
+
+        private static List<RVec> copies(List<RVec> basis) {
+            var out = new ArrayList<RVec>(basis.size());
+            for (RVec v : basis) {
+                out.add(v.copy());
+            }
+            return out;
+        }
     }
 
     public static class SingularException extends ArithmeticException {
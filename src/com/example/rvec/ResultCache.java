@@ -0,0 +1,171 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Bounded memo of det, inv and rref results, addressed by the content hash
+ * of the input matrix.
+ * <p>
+ * Every entry keeps a copy of its input, which is compared cell by cell on
+ * a hit, so a hash collision can only cost a recomputation. The cache is
+ * size-aware: an entry weighs the cells of its input plus those of its
+ * result, and least recently used entries are evicted once the total goes
+ * over the bound. Matrix results are copied on the way in and out, since
+ * RVecs can be changed in place through an op log replay.
+ * <p>
+ * The lock is only held for lookups and insertions, never while a result
+ * is computed, so two threads missing on the same matrix both compute it.
+ */
+@SuppressWarnings("unused")
+public class ResultCache {
+    private enum Kind {DET, INV, RREF}
+
+    private final long maxCells;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cells;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ResultCache(long maxCells) {
+        if (maxCells < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.maxCells = maxCells;
+    }
+
+    public Fraction det(RVec rv) {
+        return lookup(Kind.DET, rv, rv::det);
+    }
+
+    public RVec inv(RVec rv) {
+        return lookup(Kind.INV, rv, rv::inv);
+    }
+
+    public RVec rref(RVec rv) {
+        return lookup(Kind.RREF, rv, rv::rref);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T lookup(Kind kind, RVec rv, Supplier<T> compute) {
+        var key = new Key(kind, rv.contentHash());
+        Object hit = null;
+        synchronized (this) {
+            var e = entries.get(key);
+            if (e != null && e.input.strictEquals(rv)) {
+                hits++;
+                hit = e.value;
+            } else {
+                misses++;
+            }
+        }
+        if (hit != null) {
+            return (T) (hit instanceof RVec ? ((RVec) hit).copy() : hit);
+        }
+
+        var value = compute.get();
+        var stored = value instanceof RVec ? ((RVec) value).copy() : value;
+        long weight = (long) rv.getRows() * rv.getCols()
+                + (value instanceof RVec ? (long) rv.getRows() * rv.getCols() : 1);
+        if (weight <= maxCells) {
+            synchronized (this) {
+                var old = entries.put(key, new Entry(rv.copy(), stored, weight));
+                if (old != null) {
+                    cells -= old.weight;
+                }
+                cells += weight;
+                evict();
+            }
+        }
+        return value;
+    }
+
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (cells > maxCells && it.hasNext()) {
+            cells -= it.next().weight;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        cells = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // total weight of the entries, in cells
+    public synchronized long getCells() {
+        return cells;
+    }
+
+    public long getMaxCells() {
+        return maxCells;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized double getHitRate() {
+        var total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ResultCache{size=" + entries.size() + ", cells=" + cells + "/" + maxCells
+                + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "}";
+    }
+
+    private static final class Key {
+        final Kind kind;
+        final long hash;
+
+        Key(Kind kind, long hash) {
+            this.kind = kind;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return kind == key.kind && hash == key.hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * kind.hashCode() + Long.hashCode(hash);
+        }
+    }
+
+    private static final class Entry {
+        final RVec input;
+        final Object value;
+        final long weight;
+
+        Entry(RVec input, Object value, long weight) {
+            this.input = input;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
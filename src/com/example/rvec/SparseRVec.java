@@ -0,0 +1,300 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Sparse rational matrix in compressed sparse row (CSR) form: rowPtr[i]
+ * to rowPtr[i + 1] index the column indices and values of the explicit
+ * non-zeros of row i, with columns in increasing order. Zeros are never
+ * stored.
+ */
+@SuppressWarnings("unused")
+public class SparseRVec {
+    private final int m;
+    private final int n;
+    private final int[] rowPtr;
+    private final int[] colIdx;
+    private final Fraction[] vals;
+
+    SparseRVec(int m, int n, int[] rowPtr, int[] colIdx, Fraction[] vals) {
+        if (m < 1 || n < 1 || rowPtr.length != m + 1) {
+            throw new IllegalArgumentException();
+        }
+        this.m = m;
+        this.n = n;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.vals = vals;
+    }
+
+    public static SparseRVec of(RVec rv) {
+        var m = rv.getRows();
+        var n = rv.getCols();
+        var rowPtr = new int[m + 1];
+        int nnz = 0;
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                if (!rv.get(i, j).isZero()) {
+                    nnz++;
+                }
+            }
+            rowPtr[i + 1] = nnz;
+        }
+        var colIdx = new int[nnz];
+        var vals = new Fraction[nnz];
+        int p = 0;
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                var f = rv.get(i, j);
+                if (!f.isZero()) {
+                    colIdx[p] = j;
+                    vals[p] = f;
+                    p++;
+                }
+            }
+        }
+        return new SparseRVec(m, n, rowPtr, colIdx, vals);
+    }
+
+    public static SparseRVec eye(int n) {
+        var rowPtr = new int[n + 1];
+        var colIdx = new int[n];
+        var vals = new Fraction[n];
+        for (int i = 0; i < n; i++) {
+            rowPtr[i + 1] = i + 1;
+            colIdx[i] = i;
+            vals[i] = Fraction.ONE;
+        }
+        return new SparseRVec(n, n, rowPtr, colIdx, vals);
+    }
+
+    public RVec toVec() {
+        var ma = new Fraction[m][n];
+        for (int i = 0; i < m; i++) {
+            Arrays.fill(ma[i], Fraction.ZERO);
+            for (int p = rowPtr[i]; p < rowPtr[i + 1]; p++) {
+                ma[i][colIdx[p]] = vals[p];
+            }
+        }
+        return new RVec(m, n, ma);
+    }
+
+    public int getRows() {
+        return m;
+    }
+
+    public int getCols() {
+        return n;
+    }
+
+    public int nnz() {
+        return rowPtr[m];
+    }
+
+    public Fraction get(int i, int j) {
+        if (i < 0 || i >= m || j < 0 || j >= n) {
+            throw new IndexOutOfBoundsException();
+        }
+        var p = Arrays.binarySearch(colIdx, rowPtr[i], rowPtr[i + 1], j);
+        return p >= 0 ? vals[p] : Fraction.ZERO;
+    }
+
+    public SparseRVec transpose() {
+        var nnz = nnz();
+        var ptr = new int[n + 1];
+        for (int p = 0; p < nnz; p++) {
+            ptr[colIdx[p] + 1]++;
+        }
+        for (int j = 0; j < n; j++) {
+            ptr[j + 1] += ptr[j];
+        }
+        var next = Arrays.copyOf(ptr, n);
+        var idx = new int[nnz];
+        var vs = new Fraction[nnz];
+        // rows are visited in order, so each transposed row stays sorted
+        for (int i = 0; i < m; i++) {
+            for (int p = rowPtr[i]; p < rowPtr[i + 1]; p++) {
+                var q = next[colIdx[p]]++;
+                idx[q] = i;
+                vs[q] = vals[p];
+            }
+        }
+        return new SparseRVec(n, m, ptr, idx, vs);
+    }
+
+    public SparseRVec add(SparseRVec other) {
+        if (m != other.m || n != other.n) {
+            throw new ArithmeticException("addition is undefined");
+        }
+        var ptr = new int[m + 1];
+        var idx = new int[nnz() + other.nnz()];
+        var vs = new Fraction[idx.length];
+        int q = 0;
+        for (int i = 0; i < m; i++) {
+            int a = rowPtr[i];
+            int b = other.rowPtr[i];
+            var ae = rowPtr[i + 1];
+            var be = other.rowPtr[i + 1];
+            while (a < ae || b < be) {
+                var ca = a < ae ? colIdx[a] : Integer.MAX_VALUE;
+                var cb = b < be ? other.colIdx[b] : Integer.MAX_VALUE;
+                Fraction v;
+                int c;
+                if (ca == cb) {
+                    c = ca;
+                    v = vals[a++].add(other.vals[b++]);
+                } else if (ca < cb) {
+                    c = ca;
+                    v = vals[a++];
+                } else {
+                    c = cb;
+                    v = other.vals[b++];
+                }
+                if (!v.isZero()) {
+                    idx[q] = c;
+                    vs[q] = v;
+                    q++;
+                }
+            }
+            ptr[i + 1] = q;
+        }
+        return new SparseRVec(m, n, ptr, Arrays.copyOf(idx, q), Arrays.copyOf(vs, q));
+    }
+
+    public SparseRVec mul(Fraction k) {
+        if (k.isZero()) {
+            return new SparseRVec(m, n, new int[m + 1], new int[0], new Fraction[0]);
+        }
+        var vs = new Fraction[vals.length];
+        for (int p = 0; p < vals.length; p++) {
+            vs[p] = vals[p].mul(k);
+        }
+        return new SparseRVec(m, n, rowPtr, colIdx, vs);
+    }
+
+    public SparseRVec neg() {
+        return mul(Fraction.ONE.neg());
+    }
+
+    // Gustavson's row-by-row product with a dense accumulator per row
+    public SparseRVec dot(SparseRVec other) {
+        if (n != other.m) {
+            throw new ArithmeticException();
+        }
+        var p = other.n;
+        var acc = new Fraction[p];
+        var mark = new int[p];
+        Arrays.fill(mark, -1);
+        var touched = new int[p];
+
+        var ptr = new int[m + 1];
+        var idx = new int[Math.max(16, nnz())];
+        var vs = new Fraction[idx.length];
+        int q = 0;
+
+        for (int i = 0; i < m; i++) {
+            int count = 0;
+            for (int a = rowPtr[i]; a < rowPtr[i + 1]; a++) {
+                var k = colIdx[a];
+                var av = vals[a];
+                for (int b = other.rowPtr[k]; b < other.rowPtr[k + 1]; b++) {
+                    var j = other.colIdx[b];
+                    var prod = av.mul(other.vals[b]);
+                    if (mark[j] != i) {
+                        mark[j] = i;
+                        acc[j] = prod;
+                        touched[count++] = j;
+                    } else {
+                        acc[j] = acc[j].add(prod);
+                    }
+                }
+            }
+            Arrays.sort(touched, 0, count);
+            if (q + count > idx.length) {
+                var cap = Math.max(idx.length * 2, q + count);
+                idx = Arrays.copyOf(idx, cap);
+                vs = Arrays.copyOf(vs, cap);
+            }
+            for (int t = 0; t < count; t++) {
+                var j = touched[t];
+                if (!acc[j].isZero()) {
+                    idx[q] = j;
+                    vs[q] = acc[j];
+                    q++;
+                }
+                acc[j] = null;
+            }
+            ptr[i + 1] = q;
+        }
+        return new SparseRVec(m, p, ptr, Arrays.copyOf(idx, q), Arrays.copyOf(vs, q));
+    }
+
+    public Fraction det() {
+        if (m != n) {
+            throw new UnsupportedOperationException();
+        }
+        return new Markowitz(this, null).det();
+    }
+
+    public int rank() {
+        return new Markowitz(this, null).rank();
+    }
+
+    // Solves A x = b for every column of b
+    public RVec solve(RVec b) {
+        if (m != n) {
+            throw new UnsupportedOperationException();
+        }
+        if (b.getRows() != n) {
+            throw new IllegalArgumentException();
+        }
+        return new Markowitz(this, b).solve();
+    }
+
+    // row i as sorted column indices and values, for the eliminator
+    int rowStart(int i) {
+        return rowPtr[i];
+    }
+
+    int rowEnd(int i) {
+        return rowPtr[i + 1];
+    }
+
+    int col(int p) {
+        return colIdx[p];
+    }
+
+    Fraction val(int p) {
+        return vals[p];
+    }
+
+    @Override
+    public String toString() {
+        return toVec().toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SparseRVec sv = (SparseRVec) o;
+        return m == sv.m && n == sv.n
+                && Arrays.equals(rowPtr, sv.rowPtr)
+                && Arrays.equals(colIdx, 0, nnz(), sv.colIdx, 0, sv.nnz())
+                && Arrays.equals(vals, 0, nnz(), sv.vals, 0, sv.nnz());
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(m, n);
+        result = 31 * result + Arrays.hashCode(rowPtr);
+        for (int p = 0; p < nnz(); p++) {
+            result = 31 * result + colIdx[p];
+            result = 31 * result + vals[p].hashCode();
+        }
+        return result;
+    }
+}
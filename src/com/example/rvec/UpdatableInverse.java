@@ -0,0 +1,487 @@
+package com.example.rvec;
+
+import com.example.rvec.RVec.Fraction;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.stream.IntStream;
+
+/**
+ * A square matrix together with its inverse and determinant, kept current
+ * across low-rank changes without refactorizing.
+ * <p>
+ * The state is the integer matrix B = c A, for c a common denominator of
+ * A, through adj(B) and det(B): A^-1 = c adj(B) / det(B) and det(A) =
+ * det(B) / c^n. A rank-one change B + u v^T is Sherman-Morrison with the
+ * matrix determinant lemma, which in this form stays fraction-free:
+ * det' = det + v^T adj u and adj' = (det' adj - (adj u)(v^T adj)) / det,
+ * the division being exact. That is O(n^2) BigInteger products and no gcds,
+ * against O(n^3) to refactorize. Entry, row and column changes read the
+ * vectors they need straight off the adjugate; a change of rank k is
+ * applied as k rank-one steps.
+ * <p>
+ * A value with a new denominator grows c, scaling adj(B) by t^(n-1) and
+ * det(B) by t^n for t the growth, and updates alone never shrink c again;
+ * refactorEvery refactorizes every so many rank-one updates, which brings
+ * c back to the lcm of the current denominators. Integral matrices keep
+ * c = 1 and gain nothing from it. A change that makes the matrix singular
+ * is applied, and the handle reports det 0 until a later change makes it
+ * invertible again, which is found by refactorizing.
+ */
+@SuppressWarnings("unused")
+public class UpdatableInverse {
+    // below this many cells the rank-one update stays on one thread
+    private static final int PARALLEL_CELLS = 1 << 12;
+
+    private final int n;
+    private final Fraction[][] a;
+    private final int refactorEvery;
+    // adj(c A), null while the matrix is singular
+    private BigInteger[][] adj;
+    private BigInteger det;
+    private BigInteger scale;
+    private int sinceRefactor;
+    private int updates;
+    private int refactorizations;
+
+    public UpdatableInverse(RVec a) {
+        this(a, 0);
+    }
+
+    // refactorEvery: rank-one updates between refactorizations, 0 for never
+    public UpdatableInverse(RVec a, int refactorEvery) {
+        if (a.getRows() != a.getCols()) {
+            throw new UnsupportedOperationException();
+        }
+        if (refactorEvery < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.n = a.getRows();
+        this.a = new Fraction[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                this.a[i][j] = a.get(i, j);
+            }
+        }
+        this.refactorEvery = refactorEvery;
+        refactor();
+    }
+
+    // Changes
+
+    public void set(int i, int j, Fraction value) {
+        checkIndex(i);
+        checkIndex(j);
+        var delta = value.sub(a[i][j]);
+        if (delta.isZero()) {
+            return;
+        }
+        a[i][j] = value;
+        if (due(1)) {
+            refactor();
+            return;
+        }
+        grow(value.getBigDen());
+        // u = c delta e_i, v = e_j
+        var d = scaled(delta);
+        var x = new BigInteger[n];
+        for (int r = 0; r < n; r++) {
+            x[r] = adj[r][i].multiply(d);
+        }
+        rankOne(x, adj[j].clone(), det.add(x[j]));
+    }
+
+    // Several entries at once; the positions must be distinct
+    public void set(int[] rows, int[] cols, Fraction[] values) {
+        var k = rows.length;
+        if (cols.length != k || values.length != k) {
+            throw new IllegalArgumentException();
+        }
+        var seen = new HashSet<Long>();
+        for (int t = 0; t < k; t++) {
+            checkIndex(rows[t]);
+            checkIndex(cols[t]);
+            if (!seen.add((long) rows[t] * n + cols[t])) {
+                throw new IllegalArgumentException("duplicate entry");
+            }
+        }
+        var deltas = new Fraction[k];
+        int changed = 0;
+        for (int t = 0; t < k; t++) {
+            deltas[t] = values[t].sub(a[rows[t]][cols[t]]);
+            a[rows[t]][cols[t]] = values[t];
+            changed += deltas[t].isZero() ? 0 : 1;
+        }
+        if (changed == 0) {
+            return;
+        }
+        if (due(changed)) {
+            refactor();
+            return;
+        }
+        for (int t = 0; t < k; t++) {
+            grow(values[t].getBigDen());
+        }
+        for (int t = 0; t < k; t++) {
+            if (deltas[t].isZero()) {
+                continue;
+            }
+            if (adj == null) {
+                // singular part way through, with changes still to apply
+                refactor();
+                return;
+            }
+            var d = scaled(deltas[t]);
+            var x = new BigInteger[n];
+            for (int r = 0; r < n; r++) {
+                x[r] = adj[r][rows[t]].multiply(d);
+            }
+            rankOne(x, adj[cols[t]].clone(), det.add(x[cols[t]]));
+        }
+    }
+
+    // replaces row i by the 1 x n row
+    public void setRow(int i, RVec row) {
+        checkIndex(i);
+        if (row.getRows() != 1 || row.getCols() != n) {
+            throw new IllegalArgumentException();
+        }
+        var delta = new Fraction[n];
+        boolean changed = false;
+        for (int j = 0; j < n; j++) {
+            delta[j] = row.get(0, j).sub(a[i][j]);
+            changed |= !delta[j].isZero();
+            a[i][j] = row.get(0, j);
+        }
+        if (!changed) {
+            return;
+        }
+        if (due(1)) {
+            refactor();
+            return;
+        }
+        grow(denominator(a[i]));
+        // u = e_i, v = c delta
+        var x = new BigInteger[n];
+        for (int r = 0; r < n; r++) {
+            x[r] = adj[r][i];
+        }
+        var y = rowTimesAdjugate(scaled(delta));
+        rankOne(x, y, det.add(y[i]));
+    }
+
+    // replaces column j by the n x 1 column
+    public void setColumn(int j, RVec col) {
+        checkIndex(j);
+        if (col.getRows() != n || col.getCols() != 1) {
+            throw new IllegalArgumentException();
+        }
+        var delta = new Fraction[n];
+        var values = new Fraction[n];
+        boolean changed = false;
+        for (int i = 0; i < n; i++) {
+            values[i] = col.get(i, 0);
+            delta[i] = values[i].sub(a[i][j]);
+            changed |= !delta[i].isZero();
+            a[i][j] = values[i];
+        }
+        if (!changed) {
+            return;
+        }
+        if (due(1)) {
+            refactor();
+            return;
+        }
+        grow(denominator(values));
+        // u = c delta, v = e_j
+        var x = adjugateTimesColumn(scaled(delta));
+        rankOne(x, adj[j].clone(), det.add(x[j]));
+    }
+
+    // A += u v^T for n x k matrices u and v
+    public void update(RVec u, RVec v) {
+        var k = u.getCols();
+        if (u.getRows() != n || v.getRows() != n || v.getCols() != k) {
+            throw new IllegalArgumentException();
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                var s = a[i][j];
+                for (int t = 0; t < k; t++) {
+                    s = s.add(u.get(i, t).mul(v.get(j, t)));
+                }
+                a[i][j] = s;
+            }
+        }
+        if (due(k)) {
+            refactor();
+            return;
+        }
+        var ut = new Fraction[n];
+        var vt = new Fraction[n];
+        for (int t = 0; t < k; t++) {
+            if (adj == null) {
+                refactor();
+                return;
+            }
+            for (int i = 0; i < n; i++) {
+                ut[i] = u.get(i, t);
+                vt[i] = v.get(i, t);
+            }
+            // c u v^T = (c / (p q)) (p u)(q v)^T, with p u and q v integral
+            var p = denominator(ut);
+            var q = denominator(vt);
+            grow(p.multiply(q));
+            var f = scale.divide(p.multiply(q));
+            var uu = new BigInteger[n];
+            var vv = new BigInteger[n];
+            for (int i = 0; i < n; i++) {
+                uu[i] = ut[i].getBigNum().multiply(p.divide(ut[i].getBigDen())).multiply(f);
+                vv[i] = vt[i].getBigNum().multiply(q.divide(vt[i].getBigDen()));
+            }
+            var x = adjugateTimesColumn(uu);
+            var s = det;
+            for (int i = 0; i < n; i++) {
+                if (vv[i].signum() != 0) {
+                    s = s.add(vv[i].multiply(x[i]));
+                }
+            }
+            rankOne(x, rowTimesAdjugate(vv), s);
+        }
+    }
+
+    // Recomputes the inverse and determinant from the matrix, with the
+    // scale back at the lcm of its denominators
+    public void refactor() {
+        var c = BigInteger.ONE;
+        for (int i = 0; i < n; i++) {
+            c = lcm(c, denominator(a[i]));
+        }
+        var b = new BigInteger[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                var f = a[i][j];
+                b[i * n + j] = f.getBigNum().multiply(c.divide(f.getBigDen()));
+            }
+        }
+        var flat = new BigInteger[n * n];
+        det = Bareiss.adjugate(b, n, flat);
+        scale = c;
+        if (det.signum() == 0) {
+            adj = null;
+        } else {
+            adj = new BigInteger[n][n];
+            for (int i = 0; i < n; i++) {
+                System.arraycopy(flat, i * n, adj[i], 0, n);
+            }
+        }
+        sinceRefactor = 0;
+        refactorizations++;
+    }
+
+    // Queries
+
+    public int size() {
+        return n;
+    }
+
+    public Fraction get(int i, int j) {
+        checkIndex(i);
+        checkIndex(j);
+        return a[i][j];
+    }
+
+    public RVec matrix() {
+        var out = new Fraction[n][];
+        for (int i = 0; i < n; i++) {
+            out[i] = a[i].clone();
+        }
+        return new RVec(n, n, out);
+    }
+
+    public boolean isSingular() {
+        return adj == null;
+    }
+
+    public Fraction det() {
+        return Fraction.of(det, scale.pow(n));
+    }
+
+    public RVec inv() {
+        checkInvertible();
+        var out = new Fraction[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                out[i][j] = Fraction.of(adj[i][j].multiply(scale), det);
+            }
+        }
+        return new RVec(n, n, out);
+    }
+
+    // A^-1 b in O(n^2) per column of b, without forming the inverse
+    public RVec solve(RVec b) {
+        if (b.getRows() != n) {
+            throw new IllegalArgumentException();
+        }
+        checkInvertible();
+        var k = b.getCols();
+        var out = new Fraction[n][k];
+        var col = new Fraction[n];
+        var bb = new BigInteger[n];
+        for (int t = 0; t < k; t++) {
+            for (int i = 0; i < n; i++) {
+                col[i] = b.get(i, t);
+            }
+            var e = denominator(col);
+            for (int i = 0; i < n; i++) {
+                bb[i] = col[i].getBigNum().multiply(e.divide(col[i].getBigDen()));
+            }
+            var x = adjugateTimesColumn(bb);
+            var den = det.multiply(e);
+            for (int i = 0; i < n; i++) {
+                out[i][t] = Fraction.of(x[i].multiply(scale), den);
+            }
+        }
+        return new RVec(n, k, out);
+    }
+
+    // changes applied since construction
+    public int getUpdates() {
+        return updates;
+    }
+
+    public int getRefactorizations() {
+        return refactorizations;
+    }
+
+    // Updates
+
+    // Counts a change of this rank and says whether to refactorize instead:
+    // when singular, when the policy is due, or when the rank is too high
+    // for the updates to be any cheaper
+    private boolean due(int rank) {
+        updates++;
+        sinceRefactor += rank;
+        return adj == null || refactorEvery > 0 && sinceRefactor >= refactorEvery || 2 * rank >= n;
+    }
+
+    // Moves the scale to a multiple of den
+    private void grow(BigInteger den) {
+        if (scale.mod(den).signum() == 0) {
+            return;
+        }
+        var c = lcm(scale, den);
+        var t = c.divide(scale);
+        var tn1 = t.pow(n - 1);
+        rows().forEach(i -> {
+            var row = adj[i];
+            for (int j = 0; j < n; j++) {
+                row[j] = row[j].multiply(tn1);
+            }
+        });
+        det = det.multiply(tn1).multiply(t);
+        scale = c;
+    }
+
+    // c f, integral once the scale has grown to f's denominator
+    private BigInteger scaled(Fraction f) {
+        return f.getBigNum().multiply(scale.divide(f.getBigDen()));
+    }
+
+    private BigInteger[] scaled(Fraction[] f) {
+        var out = new BigInteger[f.length];
+        for (int i = 0; i < f.length; i++) {
+            out[i] = scaled(f[i]);
+        }
+        return out;
+    }
+
+    // adj = (s adj - x y) / det, det = s, for x = adj u, y = v^T adj and
+    // s = det + v^T adj u
+    private void rankOne(BigInteger[] x, BigInteger[] y, BigInteger s) {
+        var d = det;
+        det = s;
+        if (s.signum() == 0) {
+            adj = null;
+            return;
+        }
+        rows().forEach(i -> {
+            var row = adj[i];
+            var xi = x[i];
+            for (int j = 0; j < n; j++) {
+                var p = row[j].multiply(s);
+                if (xi.signum() != 0 && y[j].signum() != 0) {
+                    p = p.subtract(xi.multiply(y[j]));
+                }
+                row[j] = p.divide(d);
+            }
+        });
+    }
+
+    // adj c
+    private BigInteger[] adjugateTimesColumn(BigInteger[] c) {
+        var out = new BigInteger[n];
+        for (int i = 0; i < n; i++) {
+            var s = BigInteger.ZERO;
+            for (int j = 0; j < n; j++) {
+                if (c[j].signum() != 0) {
+                    s = s.add(adj[i][j].multiply(c[j]));
+                }
+            }
+            out[i] = s;
+        }
+        return out;
+    }
+
+    // r^T adj
+    private BigInteger[] rowTimesAdjugate(BigInteger[] r) {
+        var out = new BigInteger[n];
+        for (int j = 0; j < n; j++) {
+            out[j] = BigInteger.ZERO;
+        }
+        for (int i = 0; i < n; i++) {
+            if (r[i].signum() == 0) {
+                continue;
+            }
+            for (int j = 0; j < n; j++) {
+                out[j] = out[j].add(r[i].multiply(adj[i][j]));
+            }
+        }
+        return out;
+    }
+
+    private IntStream rows() {
+        var rows = IntStream.range(0, n);
+        return n * n >= PARALLEL_CELLS ? rows.parallel() : rows;
+    }
+
+    private static BigInteger denominator(Fraction[] f) {
+        var d = BigInteger.ONE;
+        for (Fraction x : f) {
+            d = lcm(d, x.getBigDen());
+        }
+        return d;
+    }
+
+    private static BigInteger lcm(BigInteger a, BigInteger b) {
+        return a.divide(a.gcd(b)).multiply(b);
+    }
+
+    private void checkInvertible() {
+        if (adj == null) {
+            throw new RVec.SingularException("Matrix is not invertible");
+        }
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= n) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "UpdatableInverse{n=" + n + ", det=" + det() + ", updates=" + updates
+                + ", refactorizations=" + refactorizations + "}";
+    }
+}